@@ -0,0 +1,41 @@
+package com.clogman;
+
+/**
+ * Helpers for bitsets stored as long[] (bit i lives in word i >> 6)
+ */
+final class Bits
+{
+    private Bits()
+    {
+    }
+
+    static long[] create(int size)
+    {
+        return new long[(size + 63) >>> 6];
+    }
+
+    static boolean get(long[] bits, int index)
+    {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    static void set(long[] bits, int index)
+    {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    static void clear(long[] bits, int index)
+    {
+        bits[index >>> 6] &= ~(1L << index);
+    }
+
+    static int count(long[] bits)
+    {
+        int count = 0;
+        for (long word : bits)
+        {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
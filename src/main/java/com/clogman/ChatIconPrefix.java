@@ -0,0 +1,88 @@
+package com.clogman;
+
+/**
+ * Puts the clogman icon in front of the local player's name in the chatbox input and in
+ * their chat messages.
+ *
+ * The icon tag and the prefixed names are built once per icon offset and name rather than
+ * on every keystroke, and input that already carries the icon is left alone without
+ * building anything. Client thread only.
+ */
+final class ChatIconPrefix
+{
+    // "<img=N>" for the icon's mod icon offset, null until it's loaded
+    private String iconTag;
+
+    // Name portion of the chatbox input ("Name" or "[Channel] Name") and its prefixed form
+    private String inputName;
+    private String prefixedInputName;
+
+    // Name of the last chat message prefixed and its prefixed form
+    private String messageName;
+    private String prefixedMessageName;
+
+    void setIconOffset(int offset)
+    {
+        iconTag = offset >= 0 ? "<img=" + offset + ">" : null;
+        clearNames();
+    }
+
+    /**
+     * Forgets the prefixed names, e.g. on logout when the player may change
+     */
+    void clearNames()
+    {
+        inputName = null;
+        prefixedInputName = null;
+        messageName = null;
+        prefixedMessageName = null;
+    }
+
+    boolean isLoaded()
+    {
+        return iconTag != null;
+    }
+
+    /**
+     * The chatbox input text with the icon in front of the name, or null if it doesn't need
+     * changing (no name, or the icon is already there)
+     */
+    String prefixInput(String text)
+    {
+        int colon = text.indexOf(':');
+        if (iconTag == null || colon == -1)
+        {
+            return null;
+        }
+
+        int tag = text.indexOf(iconTag);
+        if (tag != -1 && tag < colon)
+        {
+            return null;
+        }
+
+        if (inputName == null || colon != inputName.length() || !text.startsWith(inputName))
+        {
+            inputName = text.substring(0, colon);
+            prefixedInputName = iconTag + inputName;
+        }
+
+        return new StringBuilder(prefixedInputName.length() + text.length() - colon)
+            .append(prefixedInputName)
+            .append(text, colon, text.length())
+            .toString();
+    }
+
+    /**
+     * A chat message name with the icon in front of it
+     */
+    String prefixName(String name)
+    {
+        if (!name.equals(messageName))
+        {
+            messageName = name;
+            prefixedMessageName = iconTag + name;
+        }
+        return prefixedMessageName;
+    }
+}
@@ -0,0 +1,493 @@
+package com.clogman;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable, primitive-backed view of the restriction data.
+ *
+ * Collection log items are addressed by a dense ordinal (0..clogCount-1), assigned in
+ * ascending primary item ID order. Recipes and derived dependency sets refer to clog
+ * items by ordinal. Item ID lookups go through prebuilt sorted indexes, so nothing has
+ * to be hashed or boxed when the data is loaded.
+ *
+ * Arrays returned by the getters are shared with the dataset and must not be modified.
+ */
+public final class ClogDataset
+{
+    static final int MAGIC = 0x434C4F47; // "CLOG"
+    static final int FORMAT_VERSION = 6;
+
+    static final byte FLAG_CLUE = 1;
+
+    // Item table entries: category in the low two bits, then the locked bit, then the ordinal
+    static final int ITEM_UNTRACKED = 0;
+    static final int ITEM_CLOG = 1;
+    static final int ITEM_DERIVED = 2;
+    static final int ITEM_CATEGORY_MASK = 3;
+    static final int ITEM_LOCKED = 4;
+    static final int ITEM_ORDINAL_SHIFT = 3;
+
+    static final ClogDataset EMPTY = new ClogDataset(
+        new int[0], new String[0], new byte[0], new int[0][], new int[0][][],
+        new String[0], new int[0][], new int[0][][],
+        new int[0], new int[] {0}, new int[0], new int[0], new int[] {0}, new int[0]);
+
+    // Clog items by ordinal
+    private final int[] clogIds;
+    private final String[] clogNames;
+    private final byte[] clogFlags;
+    private final int[][] clogVariants;
+    private final int[][][] clogRequirements;
+
+    // Derived items by index
+    private final String[] derivedNames;
+    private final int[][] derivedItemIds;
+    private final int[][][] derivedDependencies;
+
+    // Any clog item ID (including variants) -> owning ordinals, keys sorted ascending.
+    // Owners of clogIndexIds[i] are clogIndexOwners[clogIndexStart[i] .. clogIndexStart[i + 1])
+    private final int[] clogIndexIds;
+    private final int[] clogIndexStart;
+    private final int[] clogIndexOwners;
+
+    // Any derived item ID -> owning derived indexes, same layout as the clog index
+    private final int[] derivedIndexIds;
+    private final int[] derivedIndexStart;
+    private final int[] derivedIndexOwners;
+
+    // Normalized clog names (and their suffix-less aliases) -> ordinals, built on load
+    private final NameIndex nameIndex;
+
+    ClogDataset(
+        int[] clogIds, String[] clogNames, byte[] clogFlags, int[][] clogVariants,
+        int[][][] clogRequirements,
+        String[] derivedNames, int[][] derivedItemIds, int[][][] derivedDependencies,
+        int[] clogIndexIds, int[] clogIndexStart, int[] clogIndexOwners,
+        int[] derivedIndexIds, int[] derivedIndexStart, int[] derivedIndexOwners)
+    {
+        this.clogIds = clogIds;
+        this.clogNames = clogNames;
+        this.clogFlags = clogFlags;
+        this.clogVariants = clogVariants;
+        this.clogRequirements = clogRequirements;
+        this.derivedNames = derivedNames;
+        this.derivedItemIds = derivedItemIds;
+        this.derivedDependencies = derivedDependencies;
+        this.clogIndexIds = clogIndexIds;
+        this.clogIndexStart = clogIndexStart;
+        this.clogIndexOwners = clogIndexOwners;
+        this.derivedIndexIds = derivedIndexIds;
+        this.derivedIndexStart = derivedIndexStart;
+        this.derivedIndexOwners = derivedIndexOwners;
+        this.nameIndex = NameIndex.of(clogNames);
+    }
+
+    // === CLOG ITEMS ===
+
+    public int getClogCount()
+    {
+        return clogIds.length;
+    }
+
+    /**
+     * Primary item ID of the clog item with the given ordinal
+     */
+    public int getClogId(int ordinal)
+    {
+        return clogIds[ordinal];
+    }
+
+    public String getClogName(int ordinal)
+    {
+        return clogNames[ordinal];
+    }
+
+    /**
+     * Checks if a clog item is from the Treasure Trails (Clues) section
+     */
+    public boolean isClueItem(int ordinal)
+    {
+        return (clogFlags[ordinal] & FLAG_CLUE) != 0;
+    }
+
+    /**
+     * All valid item IDs for a clog item (e.g., new/used states), including the primary ID
+     */
+    public int[] getClogVariantIds(int ordinal)
+    {
+        return clogVariants[ordinal];
+    }
+
+    /**
+     * Recipes flattened (at build time) to minimal sets of clog items that unlock this one
+     * without crafting chains, as ordinals. Excludes unlocking the item itself.
+     * Outer array: OR, inner array: AND
+     */
+    public int[][] getClogRequirements(int ordinal)
+    {
+        return clogRequirements[ordinal];
+    }
+
+    /**
+     * Ordinal of the clog item with the given primary ID, or -1 if it isn't one
+     */
+    public int getOrdinal(int clogId)
+    {
+        int idx = Arrays.binarySearch(clogIds, clogId);
+        return idx >= 0 ? idx : -1;
+    }
+
+    /**
+     * Ordinal of the first clog item owning the given item ID (primary or variant), or -1
+     */
+    public int getOwningOrdinal(int itemId)
+    {
+        int idx = Arrays.binarySearch(clogIndexIds, itemId);
+        return idx >= 0 ? clogIndexOwners[clogIndexStart[idx]] : -1;
+    }
+
+    /**
+     * Ordinals of the clog items with the given name, ignoring case, punctuation and a trailing
+     * "(...)" suffix if there's no exact match. Empty if nothing matches.
+     */
+    public int[] getOrdinalsByName(CharSequence name)
+    {
+        return nameIndex.lookup(name);
+    }
+
+    /**
+     * Ordinals of the clog items with a word in their name starting with the query, as a bitset
+     */
+    public long[] searchNames(CharSequence query)
+    {
+        return nameIndex.search(query, clogIds.length);
+    }
+
+    // === DERIVED ITEMS ===
+
+    public int getDerivedCount()
+    {
+        return derivedNames.length;
+    }
+
+    public String getDerivedName(int index)
+    {
+        return derivedNames[index];
+    }
+
+    /**
+     * All valid item IDs for a derived item
+     */
+    public int[] getDerivedItemIds(int index)
+    {
+        return derivedItemIds[index];
+    }
+
+    /**
+     * Clog dependency sets of a derived item, as ordinals. Flattened at build time through
+     * craftable_from, with dominated sets removed. Outer array: OR, inner array: AND
+     */
+    public int[][] getDerivedDependencies(int index)
+    {
+        return derivedDependencies[index];
+    }
+
+    /**
+     * Indexes of every derived item listing the given item ID, or null if it isn't a derived item
+     */
+    public int[] getDerivedOwners(int itemId)
+    {
+        int idx = Arrays.binarySearch(derivedIndexIds, itemId);
+        return idx >= 0 ? Arrays.copyOfRange(derivedIndexOwners, derivedIndexStart[idx], derivedIndexStart[idx + 1]) : null;
+    }
+
+    /**
+     * Checks an item ID against bitsets of unlocked clog ordinals and available derived items.
+     * True if the item isn't tracked, or any clog item or derived item listing it is set.
+     */
+    boolean isAvailable(int itemId, long[] clogBits, long[] derivedBits)
+    {
+        int clogIdx = Arrays.binarySearch(clogIndexIds, itemId);
+        if (clogIdx >= 0 && anyOwnerSet(clogIndexStart, clogIndexOwners, clogIdx, clogBits))
+        {
+            return true;
+        }
+
+        int derivedIdx = Arrays.binarySearch(derivedIndexIds, itemId);
+        if (derivedIdx >= 0 && anyOwnerSet(derivedIndexStart, derivedIndexOwners, derivedIdx, derivedBits))
+        {
+            return true;
+        }
+
+        return clogIdx < 0 && derivedIdx < 0;
+    }
+
+    // === ITEM TABLE ===
+
+    /**
+     * Builds a table indexed by item ID, covering every tracked ID. Each entry holds the
+     * category ({@link #ITEM_CLOG} wins over {@link #ITEM_DERIVED}), the first owning ordinal
+     * or derived index, and {@link #ITEM_LOCKED} if {@link #isAvailable} is false.
+     * IDs past the end of the table are untracked.
+     */
+    int[] createItemTable(long[] clogBits, long[] derivedBits)
+    {
+        int maxId = -1;
+        if (derivedIndexIds.length > 0)
+        {
+            maxId = derivedIndexIds[derivedIndexIds.length - 1];
+        }
+        if (clogIndexIds.length > 0)
+        {
+            maxId = Math.max(maxId, clogIndexIds[clogIndexIds.length - 1]);
+        }
+
+        int[] table = new int[maxId + 1];
+        for (int i = derivedIndexIds.length - 1; i >= 0; i--)
+        {
+            table[derivedIndexIds[i]] = derivedIndexOwners[derivedIndexStart[i]] << ITEM_ORDINAL_SHIFT | ITEM_DERIVED;
+        }
+        for (int i = clogIndexIds.length - 1; i >= 0; i--)
+        {
+            table[clogIndexIds[i]] = clogIndexOwners[clogIndexStart[i]] << ITEM_ORDINAL_SHIFT | ITEM_CLOG;
+        }
+
+        for (int itemId : clogIndexIds)
+        {
+            updateLocked(table, itemId, clogBits, derivedBits);
+        }
+        for (int itemId : derivedIndexIds)
+        {
+            updateLocked(table, itemId, clogBits, derivedBits);
+        }
+        return table;
+    }
+
+    /**
+     * Refreshes the locked bit of every item ID listed by the given clog ordinals and
+     * derived indexes, leaving the rest of the table untouched
+     */
+    void updateItemTable(int[] table, int[] clogOrdinals, int[] derivedIndexes, long[] clogBits, long[] derivedBits)
+    {
+        for (int ordinal : clogOrdinals)
+        {
+            for (int itemId : clogVariants[ordinal])
+            {
+                updateLocked(table, itemId, clogBits, derivedBits);
+            }
+        }
+        for (int index : derivedIndexes)
+        {
+            for (int itemId : derivedItemIds[index])
+            {
+                updateLocked(table, itemId, clogBits, derivedBits);
+            }
+        }
+    }
+
+    private void updateLocked(int[] table, int itemId, long[] clogBits, long[] derivedBits)
+    {
+        if (isAvailable(itemId, clogBits, derivedBits))
+        {
+            table[itemId] &= ~ITEM_LOCKED;
+        }
+        else
+        {
+            table[itemId] |= ITEM_LOCKED;
+        }
+    }
+
+    private static boolean anyOwnerSet(int[] start, int[] owners, int idx, long[] bits)
+    {
+        for (int i = start[idx]; i < start[idx + 1]; i++)
+        {
+            if (Bits.get(bits, owners[i]))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // === BINARY SNAPSHOT ===
+
+    /**
+     * Reads a snapshot written by {@link #write(OutputStream)}
+     */
+    static ClogDataset read(InputStream in) throws IOException
+    {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC)
+        {
+            throw new IOException("Not a clog restriction snapshot");
+        }
+        int version = data.readInt();
+        if (version != FORMAT_VERSION)
+        {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+
+        String[] strings = new String[data.readInt()];
+        for (int i = 0; i < strings.length; i++)
+        {
+            strings[i] = data.readUTF();
+        }
+
+        int clogCount = data.readInt();
+        int[] clogIds = readInts(data, clogCount);
+        String[] clogNames = readStrings(data, strings, clogCount);
+        byte[] clogFlags = new byte[clogCount];
+        data.readFully(clogFlags);
+        int[][] clogVariants = readRagged(data, clogCount);
+        int[][][] clogRequirements = new int[clogCount][][];
+        for (int i = 0; i < clogCount; i++)
+        {
+            clogRequirements[i] = readRagged(data, data.readInt());
+        }
+
+        int derivedCount = data.readInt();
+        String[] derivedNames = readStrings(data, strings, derivedCount);
+        int[][] derivedItemIds = readRagged(data, derivedCount);
+        int[][][] derivedDependencies = new int[derivedCount][][];
+        for (int i = 0; i < derivedCount; i++)
+        {
+            derivedDependencies[i] = readRagged(data, data.readInt());
+        }
+
+        int[] clogIndexIds = readInts(data, data.readInt());
+        int[] clogIndexStart = readInts(data, clogIndexIds.length + 1);
+        int[] clogIndexOwners = readInts(data, data.readInt());
+
+        int[] derivedIndexIds = readInts(data, data.readInt());
+        int[] derivedIndexStart = readInts(data, derivedIndexIds.length + 1);
+        int[] derivedIndexOwners = readInts(data, data.readInt());
+
+        return new ClogDataset(
+            clogIds, clogNames, clogFlags, clogVariants, clogRequirements,
+            derivedNames, derivedItemIds, derivedDependencies,
+            clogIndexIds, clogIndexStart, clogIndexOwners,
+            derivedIndexIds, derivedIndexStart, derivedIndexOwners);
+    }
+
+    /**
+     * Writes the dataset as a compact binary snapshot (used by the build step)
+     */
+    void write(OutputStream out) throws IOException
+    {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+
+        // Shared string table, each distinct string is stored once
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        for (String s : clogNames)
+        {
+            strings.putIfAbsent(s, strings.size());
+        }
+        for (String s : derivedNames)
+        {
+            strings.putIfAbsent(s, strings.size());
+        }
+        data.writeInt(strings.size());
+        for (String s : strings.keySet())
+        {
+            data.writeUTF(s);
+        }
+
+        data.writeInt(clogIds.length);
+        writeInts(data, clogIds);
+        writeStrings(data, strings, clogNames);
+        data.write(clogFlags);
+        writeRagged(data, clogVariants);
+        for (int[][] requirements : clogRequirements)
+        {
+            data.writeInt(requirements.length);
+            writeRagged(data, requirements);
+        }
+
+        data.writeInt(derivedNames.length);
+        writeStrings(data, strings, derivedNames);
+        writeRagged(data, derivedItemIds);
+        for (int[][] depSets : derivedDependencies)
+        {
+            data.writeInt(depSets.length);
+            writeRagged(data, depSets);
+        }
+
+        data.writeInt(clogIndexIds.length);
+        writeInts(data, clogIndexIds);
+        writeInts(data, clogIndexStart);
+        data.writeInt(clogIndexOwners.length);
+        writeInts(data, clogIndexOwners);
+
+        data.writeInt(derivedIndexIds.length);
+        writeInts(data, derivedIndexIds);
+        writeInts(data, derivedIndexStart);
+        data.writeInt(derivedIndexOwners.length);
+        writeInts(data, derivedIndexOwners);
+
+        data.flush();
+    }
+
+    private static int[] readInts(DataInputStream data, int length) throws IOException
+    {
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++)
+        {
+            values[i] = data.readInt();
+        }
+        return values;
+    }
+
+    private static int[][] readRagged(DataInputStream data, int length) throws IOException
+    {
+        int[][] values = new int[length][];
+        for (int i = 0; i < length; i++)
+        {
+            values[i] = readInts(data, data.readInt());
+        }
+        return values;
+    }
+
+    private static String[] readStrings(DataInputStream data, String[] table, int length) throws IOException
+    {
+        String[] values = new String[length];
+        for (int i = 0; i < length; i++)
+        {
+            values[i] = table[data.readInt()];
+        }
+        return values;
+    }
+
+    private static void writeInts(DataOutputStream data, int[] values) throws IOException
+    {
+        for (int value : values)
+        {
+            data.writeInt(value);
+        }
+    }
+
+    private static void writeRagged(DataOutputStream data, int[][] values) throws IOException
+    {
+        for (int[] row : values)
+        {
+            data.writeInt(row.length);
+            writeInts(data, row);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream data, Map<String, Integer> table, String[] values) throws IOException
+    {
+        for (String value : values)
+        {
+            data.writeInt(table.get(value));
+        }
+    }
+}
@@ -0,0 +1,752 @@
+package com.clogman;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds a {@link ClogDataset} from clog_restrictions.json.
+ *
+ * Runs at build time (compileRestrictionData task) to produce the binary snapshot shipped
+ * with the plugin, and at runtime as a fallback when the snapshot is missing.
+ *
+ * The JSON is streamed token by token straight into int arrays, so no intermediate object
+ * graph (maps, boxed ID lists) is built or kept around.
+ *
+ * craftable_from chains are flattened here rather than at runtime: every derived item's
+ * dependency sets and every clog item's requirements are rewritten as minimal sets of
+ * clog items, so the plugin only ever checks sets one level deep. The recipe graph is
+ * condensed into strongly connected components first, so cycles are evaluated to a proper
+ * fixpoint instead of depending on traversal order. Unknown IDs fail the build.
+ */
+public final class ClogDatasetBuilder
+{
+    private static final int[] NO_IDS = new int[0];
+    private static final int[][] NO_SETS = new int[0][];
+
+    // Guards against a combinatorial blow-up when flattening recipes
+    private static final int MAX_FLATTENED_SETS = 1024;
+
+    // Clog items in file order, keyed by primary ID
+    private final IntList clogIds = new IntList();
+    private final List<String> clogNames = new ArrayList<>();
+    private final List<Boolean> clueItems = new ArrayList<>();
+    private final List<int[]> clogVariants = new ArrayList<>();
+    private final List<int[][]> clogRecipes = new ArrayList<>();
+
+    // Derived items in file order, dependency sets still as item IDs
+    private final List<String> derivedNames = new ArrayList<>();
+    private final List<int[]> derivedItemIds = new ArrayList<>();
+    private final List<int[][]> derivedDependencies = new ArrayList<>();
+
+    private ClogDatasetBuilder()
+    {
+    }
+
+    /**
+     * Compiles the JSON source into the binary snapshot.
+     * Usage: ClogDatasetBuilder &lt;clog_restrictions.json&gt; &lt;clog_restrictions.bin&gt;
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 2)
+        {
+            throw new IllegalArgumentException("Usage: ClogDatasetBuilder <input.json> <output.bin>");
+        }
+
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+
+        ClogDataset dataset;
+        try (Reader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8))
+        {
+            dataset = fromJson(reader);
+        }
+
+        Files.createDirectories(output.getParent());
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output)))
+        {
+            dataset.write(out);
+        }
+
+        System.out.println("Compiled " + dataset.getClogCount() + " collection log items and "
+            + dataset.getDerivedCount() + " derived items into " + output.getFileName());
+    }
+
+    /**
+     * Streams clog_restrictions.json and builds the dataset with all lookup indexes
+     */
+    static ClogDataset fromJson(Reader reader) throws IOException
+    {
+        ClogDatasetBuilder builder = new ClogDatasetBuilder();
+
+        try (JsonReader json = new JsonReader(reader))
+        {
+            json.beginObject();
+            while (json.hasNext())
+            {
+                switch (json.nextName())
+                {
+                    case "collectionLogItems":
+                        builder.readClogItems(json);
+                        break;
+                    case "derivedItems":
+                        builder.readDerivedItems(json);
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+        }
+
+        return builder.build();
+    }
+
+    private void readClogItems(JsonReader json) throws IOException
+    {
+        json.beginObject();
+        while (json.hasNext())
+        {
+            int primaryId = Integer.parseInt(json.nextName());
+            String name = null;
+            boolean clue = false;
+            int[] variants = NO_IDS;
+            int[][] recipes = NO_SETS;
+
+            json.beginObject();
+            while (json.hasNext())
+            {
+                switch (json.nextName())
+                {
+                    case "name":
+                        name = json.nextString();
+                        break;
+                    case "tabs":
+                        clue = readClueFlag(json);
+                        break;
+                    case "all_ids":
+                        variants = readIds(json);
+                        break;
+                    case "craftable_from":
+                        recipes = readIdSets(json);
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+
+            clogIds.add(primaryId);
+            clogNames.add(name != null ? name : "Unknown (ID: " + primaryId + ")");
+            clueItems.add(clue);
+            clogVariants.add(withPrimary(variants, primaryId));
+            clogRecipes.add(recipes);
+        }
+        json.endObject();
+    }
+
+    private void readDerivedItems(JsonReader json) throws IOException
+    {
+        json.beginObject();
+        while (json.hasNext())
+        {
+            String name = json.nextName();
+            int[] itemIds = NO_IDS;
+            int[][] dependencies = NO_SETS;
+
+            json.beginObject();
+            while (json.hasNext())
+            {
+                switch (json.nextName())
+                {
+                    case "name":
+                        name = json.nextString();
+                        break;
+                    case "item_ids":
+                        itemIds = readIds(json);
+                        break;
+                    case "clog_dependencies":
+                        dependencies = readIdSets(json);
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+
+            derivedNames.add(name);
+            derivedItemIds.add(itemIds);
+            derivedDependencies.add(dependencies);
+        }
+        json.endObject();
+    }
+
+    private ClogDataset build()
+    {
+        int clogCount = clogIds.size();
+
+        // Dense ordinals in ascending primary ID order
+        int[] sortedIds = clogIds.toArray();
+        Arrays.sort(sortedIds);
+        for (int i = 1; i < clogCount; i++)
+        {
+            if (sortedIds[i] == sortedIds[i - 1])
+            {
+                throw new IllegalStateException("Duplicate collection log item ID " + sortedIds[i]);
+            }
+        }
+
+        String[] names = new String[clogCount];
+        byte[] flags = new byte[clogCount];
+        int[][] variants = new int[clogCount][];
+        int[][][] recipes = new int[clogCount][][];
+
+        for (int i = 0; i < clogCount; i++)
+        {
+            int ordinal = Arrays.binarySearch(sortedIds, clogIds.get(i));
+            names[ordinal] = clogNames.get(i);
+            flags[ordinal] = clueItems.get(i) ? ClogDataset.FLAG_CLUE : 0;
+            variants[ordinal] = clogVariants.get(i);
+            recipes[ordinal] = toOrdinals(sortedIds, clogRecipes.get(i));
+        }
+
+        // Flatten craftable_from chains into sets of clog items that are unlocked directly
+        Flattener flattener = new Flattener(names, recipes);
+        int[][][] requirements = new int[clogCount][][];
+        for (int ordinal = 0; ordinal < clogCount; ordinal++)
+        {
+            requirements[ordinal] = flattener.requirements(ordinal);
+        }
+
+        int derivedCount = derivedNames.size();
+        int[][] derivedIds = derivedItemIds.toArray(new int[0][]);
+        int[][][] dependencies = new int[derivedCount][][];
+        for (int i = 0; i < derivedCount; i++)
+        {
+            dependencies[i] = flattener.flatten(toOrdinals(sortedIds, derivedDependencies.get(i)), derivedNames.get(i));
+        }
+
+        OwnerIndex clogOwners = new OwnerIndex(variants);
+        OwnerIndex derivedOwners = new OwnerIndex(derivedIds);
+
+        return new ClogDataset(
+            sortedIds, names, flags, variants, requirements,
+            derivedNames.toArray(new String[0]), derivedIds, dependencies,
+            clogOwners.ids, clogOwners.start, clogOwners.owners,
+            derivedOwners.ids, derivedOwners.start, derivedOwners.owners);
+    }
+
+    private static boolean readClueFlag(JsonReader json) throws IOException
+    {
+        boolean clue = false;
+        json.beginArray();
+        while (json.hasNext())
+        {
+            if (json.nextString().contains("Treasure Trail"))
+            {
+                clue = true;
+            }
+        }
+        json.endArray();
+        return clue;
+    }
+
+    private static int[] readIds(JsonReader json) throws IOException
+    {
+        if (json.peek() == JsonToken.NULL)
+        {
+            json.nextNull();
+            return NO_IDS;
+        }
+
+        IntList ids = new IntList();
+        json.beginArray();
+        while (json.hasNext())
+        {
+            ids.add(json.nextInt());
+        }
+        json.endArray();
+        return ids.toArray();
+    }
+
+    private static int[][] readIdSets(JsonReader json) throws IOException
+    {
+        if (json.peek() == JsonToken.NULL)
+        {
+            json.nextNull();
+            return NO_SETS;
+        }
+
+        List<int[]> sets = new ArrayList<>();
+        json.beginArray();
+        while (json.hasNext())
+        {
+            sets.add(readIds(json));
+        }
+        json.endArray();
+        return sets.toArray(new int[0][]);
+    }
+
+    private static int[] withPrimary(int[] variants, int primaryId)
+    {
+        for (int id : variants)
+        {
+            if (id == primaryId)
+            {
+                return variants;
+            }
+        }
+        int[] result = Arrays.copyOf(variants, variants.length + 1);
+        result[variants.length] = primaryId;
+        return result;
+    }
+
+    private static int[][] toOrdinals(int[] sortedIds, int[][] sets)
+    {
+        int[][] result = new int[sets.length][];
+        for (int i = 0; i < sets.length; i++)
+        {
+            result[i] = new int[sets[i].length];
+            for (int j = 0; j < sets[i].length; j++)
+            {
+                int ordinal = Arrays.binarySearch(sortedIds, sets[i][j]);
+                if (ordinal < 0)
+                {
+                    throw new IllegalStateException("Unknown collection log item ID " + sets[i][j]);
+                }
+                result[i][j] = ordinal;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Expands recipes into minimal sets of clog items (as sorted ordinals).
+     *
+     * A clog item can be unlocked directly or through any of its recipes, so its expansion is
+     * {itself} plus the cross product of its recipe inputs' expansions. A set is dropped if
+     * another set is a subset of it (dominated), which also removes recipes that need the item
+     * itself.
+     *
+     * Items are expanded one strongly connected component at a time, in topological order
+     * (recipe inputs before the items crafted from them). Within a component, expansions are
+     * recomputed until none change, which gives the least fixpoint whatever the order.
+     */
+    private static final class Flattener
+    {
+        private final String[] names;
+        private final int[][][] recipes;
+        private final int[][][] expanded;
+
+        // Ordinals in topological order, component c is order[componentStart[c] .. componentStart[c + 1])
+        private final int[] order;
+
+        Flattener(String[] names, int[][][] recipes)
+        {
+            this.names = names;
+            this.recipes = recipes;
+            this.expanded = new int[names.length][][];
+
+            Components components = new Components(recipes);
+            this.order = components.order;
+
+            int[] componentStart = components.start;
+            for (int c = 0; c + 1 < componentStart.length; c++)
+            {
+                expandComponent(componentStart[c], componentStart[c + 1]);
+            }
+        }
+
+        /**
+         * Minimal sets unlocking a clog item other than unlocking it directly
+         */
+        int[][] requirements(int ordinal)
+        {
+            List<int[]> result = new ArrayList<>();
+            for (int[] set : expanded[ordinal])
+            {
+                if (!(set.length == 1 && set[0] == ordinal))
+                {
+                    result.add(set);
+                }
+            }
+            return result.toArray(new int[0][]);
+        }
+
+        /**
+         * Flattens OR-of-AND dependency sets into minimal sets of directly unlocked clog items
+         */
+        int[][] flatten(int[][] sets, String owner)
+        {
+            List<int[]> result = new ArrayList<>();
+            for (int[] set : sets)
+            {
+                result.addAll(product(set, owner));
+            }
+            return minimal(result, owner);
+        }
+
+        private void expandComponent(int from, int to)
+        {
+            for (int i = from; i < to; i++)
+            {
+                expanded[order[i]] = new int[][] {{order[i]}};
+            }
+
+            // Earlier components are final, so a lone item without a self-reference settles
+            // in one pass and the second just confirms it
+            boolean changed = true;
+            while (changed)
+            {
+                changed = false;
+                for (int i = from; i < to; i++)
+                {
+                    int ordinal = order[i];
+                    List<int[]> sets = new ArrayList<>();
+                    sets.add(new int[] {ordinal});
+                    for (int[] recipe : recipes[ordinal])
+                    {
+                        sets.addAll(product(recipe, names[ordinal]));
+                    }
+
+                    int[][] next = minimal(sets, names[ordinal]);
+                    if (!Arrays.deepEquals(next, expanded[ordinal]))
+                    {
+                        expanded[ordinal] = next;
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        /**
+         * All ways of satisfying every input of an AND set
+         */
+        private List<int[]> product(int[] inputs, String owner)
+        {
+            List<int[]> partial = new ArrayList<>();
+            partial.add(NO_IDS);
+            for (int input : inputs)
+            {
+                List<int[]> next = new ArrayList<>();
+                for (int[] prefix : partial)
+                {
+                    for (int[] option : expanded[input])
+                    {
+                        next.add(union(prefix, option));
+                    }
+                }
+                partial = Arrays.asList(minimal(next, owner));
+            }
+            return partial;
+        }
+
+        private static int[][] minimal(List<int[]> sets, String owner)
+        {
+            int[][] sorted = sets.toArray(new int[0][]);
+            Arrays.sort(sorted, (a, b) -> a.length != b.length ? a.length - b.length : Arrays.compare(a, b));
+
+            List<int[]> result = new ArrayList<>();
+            for (int[] set : sorted)
+            {
+                boolean dominated = false;
+                for (int[] kept : result)
+                {
+                    if (isSubset(kept, set))
+                    {
+                        dominated = true;
+                        break;
+                    }
+                }
+                if (!dominated)
+                {
+                    result.add(set);
+                }
+            }
+
+            if (result.size() > MAX_FLATTENED_SETS)
+            {
+                throw new IllegalStateException("Too many flattened dependency sets for " + owner);
+            }
+            return result.toArray(new int[0][]);
+        }
+
+        private static int[] union(int[] a, int[] b)
+        {
+            int[] result = new int[a.length + b.length];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < a.length || j < b.length)
+            {
+                int next = j == b.length || (i < a.length && a[i] <= b[j]) ? a[i] : b[j];
+                if (i < a.length && a[i] == next)
+                {
+                    i++;
+                }
+                if (j < b.length && b[j] == next)
+                {
+                    j++;
+                }
+                result[n++] = next;
+            }
+            return Arrays.copyOf(result, n);
+        }
+
+        private static boolean isSubset(int[] small, int[] large)
+        {
+            int j = 0;
+            for (int value : small)
+            {
+                while (j < large.length && large[j] < value)
+                {
+                    j++;
+                }
+                if (j == large.length || large[j] != value)
+                {
+                    return false;
+                }
+                j++;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Strongly connected components of the recipe graph (an edge from each clog item to each
+     * of its recipe inputs), found with Tarjan's algorithm. Components come out with every
+     * item's inputs in the same or an earlier component.
+     */
+    private static final class Components
+    {
+        final int[] order;
+        final int[] start;
+
+        private final int[][][] recipes;
+        private final int[] index;
+        private final int[] lowLink;
+        private final boolean[] onStack;
+        private final int[] stack;
+        private int stackSize;
+        private int nextIndex;
+        private final IntList orderList = new IntList();
+        private final IntList startList = new IntList();
+
+        Components(int[][][] recipes)
+        {
+            int count = recipes.length;
+            this.recipes = recipes;
+            this.index = new int[count];
+            this.lowLink = new int[count];
+            this.onStack = new boolean[count];
+            this.stack = new int[count];
+            Arrays.fill(index, -1);
+
+            for (int ordinal = 0; ordinal < count; ordinal++)
+            {
+                if (index[ordinal] < 0)
+                {
+                    visit(ordinal);
+                }
+            }
+            startList.add(orderList.size());
+
+            this.order = orderList.toArray();
+            this.start = startList.toArray();
+        }
+
+        /**
+         * Iterative Tarjan from one root. Each frame walks the node's recipe inputs in order,
+         * tracked by (recipe, input) positions.
+         */
+        private void visit(int root)
+        {
+            IntList frames = new IntList();
+            frames.add(root);
+            frames.add(0);
+            frames.add(0);
+            open(root);
+
+            while (frames.size() > 0)
+            {
+                int top = frames.size() - 3;
+                int node = frames.get(top);
+                int recipe = frames.get(top + 1);
+                int input = frames.get(top + 2);
+
+                if (recipe < recipes[node].length)
+                {
+                    // Advance this frame past the input we're about to look at
+                    if (input + 1 < recipes[node][recipe].length)
+                    {
+                        frames.set(top + 2, input + 1);
+                    }
+                    else
+                    {
+                        frames.set(top + 1, recipe + 1);
+                        frames.set(top + 2, 0);
+                    }
+
+                    if (input >= recipes[node][recipe].length)
+                    {
+                        continue;
+                    }
+
+                    int next = recipes[node][recipe][input];
+                    if (index[next] < 0)
+                    {
+                        open(next);
+                        frames.add(next);
+                        frames.add(0);
+                        frames.add(0);
+                    }
+                    else if (onStack[next])
+                    {
+                        lowLink[node] = Math.min(lowLink[node], index[next]);
+                    }
+                    continue;
+                }
+
+                // All inputs done
+                frames.truncate(top);
+                if (frames.size() > 0)
+                {
+                    int parent = frames.get(frames.size() - 3);
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                }
+
+                if (lowLink[node] == index[node])
+                {
+                    startList.add(orderList.size());
+                    int member;
+                    do
+                    {
+                        member = stack[--stackSize];
+                        onStack[member] = false;
+                        orderList.add(member);
+                    }
+                    while (member != node);
+                }
+            }
+        }
+
+        private void open(int node)
+        {
+            index[node] = nextIndex;
+            lowLink[node] = nextIndex;
+            nextIndex++;
+            stack[stackSize++] = node;
+            onStack[node] = true;
+        }
+    }
+
+    /**
+     * Sorted item ID -> owner indexes, built from (ID, owner) pairs packed into longs
+     */
+    private static final class OwnerIndex
+    {
+        final int[] ids;
+        final int[] start;
+        final int[] owners;
+
+        OwnerIndex(int[][] idsByOwner)
+        {
+            int pairCount = 0;
+            for (int[] ids : idsByOwner)
+            {
+                pairCount += ids.length;
+            }
+
+            long[] pairs = new long[pairCount];
+            int p = 0;
+            for (int owner = 0; owner < idsByOwner.length; owner++)
+            {
+                for (int id : idsByOwner[owner])
+                {
+                    pairs[p++] = ((long) id << 32) | owner;
+                }
+            }
+            Arrays.sort(pairs);
+
+            IntList keys = new IntList();
+            IntList starts = new IntList();
+            IntList ownerList = new IntList();
+            for (int i = 0; i < pairCount; i++)
+            {
+                int id = (int) (pairs[i] >>> 32);
+                int owner = (int) pairs[i];
+                if (i == 0 || (int) (pairs[i - 1] >>> 32) != id)
+                {
+                    keys.add(id);
+                    starts.add(ownerList.size());
+                    ownerList.add(owner);
+                }
+                else if (pairs[i - 1] != pairs[i])
+                {
+                    // Same owner listing an ID twice only counts once
+                    ownerList.add(owner);
+                }
+            }
+            starts.add(ownerList.size());
+
+            this.ids = keys.toArray();
+            this.start = starts.toArray();
+            this.owners = ownerList.toArray();
+        }
+    }
+
+    /**
+     * Minimal growable int array
+     */
+    private static final class IntList
+    {
+        private int[] values = new int[8];
+        private int size;
+
+        void add(int value)
+        {
+            if (size == values.length)
+            {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index)
+        {
+            return values[index];
+        }
+
+        void set(int index, int value)
+        {
+            values[index] = value;
+        }
+
+        void truncate(int newSize)
+        {
+            size = newSize;
+        }
+
+        int size()
+        {
+            return size;
+        }
+
+        int[] toArray()
+        {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -9,6 +9,26 @@ import net.runelite.client.config.Range;
 @ConfigGroup("clogman")
 public interface ClogmanConfig extends Config
 {
+    enum DimMode
+    {
+        OVERLAY("Overlay"),
+        GREYSCALE("Greyscale"),
+        WIDGET_OPACITY("Widget opacity");
+
+        private final String name;
+
+        DimMode(String name)
+        {
+            this.name = name;
+        }
+
+        @Override
+        public String toString()
+        {
+            return name;
+        }
+    }
+
     @ConfigSection(
         name = "Restrictions",
         description = "Configure what restrictions are enabled",
@@ -68,18 +88,90 @@ public interface ClogmanConfig extends Config
         return true;
     }
 
+    @ConfigItem(
+        keyName = "restrictShopBuy",
+        name = "Restrict Shop Buying",
+        description = "Prevent buying locked items from shops",
+        section = restrictionsSection,
+        position = 3
+    )
+    default boolean restrictShopBuy()
+    {
+        return false;
+    }
+
+    @ConfigItem(
+        keyName = "restrictGroundTake",
+        name = "Restrict Ground Items",
+        description = "Prevent picking up locked items from the ground",
+        section = restrictionsSection,
+        position = 4
+    )
+    default boolean restrictGroundTake()
+    {
+        return false;
+    }
+
+    @ConfigItem(
+        keyName = "restrictDepositBox",
+        name = "Restrict Deposit Box",
+        description = "Prevent depositing locked items through a bank deposit box",
+        section = restrictionsSection,
+        position = 5
+    )
+    default boolean restrictDepositBox()
+    {
+        return false;
+    }
+
+    @ConfigItem(
+        keyName = "restrictTradeOffer",
+        name = "Restrict Trade Offers",
+        description = "Prevent offering locked items in a trade",
+        section = restrictionsSection,
+        position = 6
+    )
+    default boolean restrictTradeOffer()
+    {
+        return false;
+    }
+
     @ConfigItem(
         keyName = "restrictClueItems",
         name = "Restrict Clue Items",
         description = "Restrict items from Treasure Trail rewards in the Collection Log",
         section = restrictionsSection,
-        position = 3
+        position = 7
     )
     default boolean restrictClueItems()
     {
         return true;
     }
 
+    @ConfigItem(
+        keyName = "restrictWhileLoading",
+        name = "Restrict While Loading",
+        description = "Treat every item as locked until the restriction data has finished loading (otherwise nothing is restricted until then)",
+        section = restrictionsSection,
+        position = 8
+    )
+    default boolean restrictWhileLoading()
+    {
+        return false;
+    }
+
+    @ConfigItem(
+        keyName = "processMenusWhenOpened",
+        name = "Process Menus When Opened",
+        description = "Gray out locked options once when a menu is opened rather than as every menu entry is added, only checking the left-click option while hovering",
+        section = restrictionsSection,
+        position = 9
+    )
+    default boolean processMenusWhenOpened()
+    {
+        return false;
+    }
+
     // === NOTIFICATIONS SECTION ===
 
     @ConfigItem(
@@ -108,12 +200,24 @@ public interface ClogmanConfig extends Config
 
     // === VISUAL SECTION ===
 
+    @ConfigItem(
+        keyName = "dimMode",
+        name = "Dim Mode",
+        description = "Overlay: darken locked items with an overlay drawn every frame. Greyscale: draw locked items as darkened greyscale sprites. Widget opacity: make the item widgets themselves transparent, only updated when the items or unlocks change",
+        section = visualSection,
+        position = 0
+    )
+    default DimMode dimMode()
+    {
+        return DimMode.OVERLAY;
+    }
+
     @ConfigItem(
         keyName = "inventoryOpacity",
         name = "Inventory Dim Opacity",
         description = "Opacity level for locked items in inventory (0 = invisible, 255 = fully visible)",
         section = visualSection,
-        position = 0
+        position = 1
     )
     @Range(min = 0, max = 255)
     default int inventoryOpacity()
@@ -126,7 +230,7 @@ public interface ClogmanConfig extends Config
         name = "Bank Dim Opacity",
         description = "Opacity level for locked items in bank (0 = invisible, 255 = fully visible)",
         section = visualSection,
-        position = 1
+        position = 2
     )
     @Range(min = 0, max = 255)
     default int bankOpacity()
@@ -139,7 +243,7 @@ public interface ClogmanConfig extends Config
         name = "Show Chat Icon",
         description = "Display the Clogman icon before your name in chat",
         section = visualSection,
-        position = 2
+        position = 3
     )
     default boolean showChatIcon()
     {
@@ -1,12 +1,15 @@
 package com.clogman;
 
 import net.runelite.api.Client;
+import net.runelite.api.InventoryID;
 import net.runelite.api.widgets.Widget;
 import net.runelite.api.widgets.WidgetItem;
+import net.runelite.client.game.ItemManager;
 import net.runelite.client.ui.overlay.WidgetItemOverlay;
 
 import javax.inject.Inject;
 import java.awt.*;
+import java.awt.image.BufferedImage;
 
 /**
  * Overlay that dims locked items in inventory and bank
@@ -16,22 +19,78 @@ public class ClogmanOverlay extends WidgetItemOverlay
     private final Client client;
     private final ClogmanPlugin plugin;
     private final ClogmanConfig config;
+    private final DimmedImageCache dimmedImages;
+
+    // Dim mode and colors for each opacity setting, rebuilt only when the config changes
+    private volatile boolean enabled;
+    private volatile boolean greyscale;
+    private volatile int inventoryOpacity;
+    private volatile int bankOpacity;
+    private volatile Color inventoryDim;
+    private volatile Color bankDim;
+
+    // Container widget of the last dimmed slot and whether it's the bank (slots arrive grouped
+    // by container, so the group is only worked out once per container per frame)
+    private int lastParentId = -1;
+    private boolean lastInBank;
+
+    private static final int INVENTORY_CONTAINER_ID = InventoryID.INVENTORY.getId();
+    private static final int BANK_CONTAINER_ID = InventoryID.BANK.getId();
 
     @Inject
-    public ClogmanOverlay(Client client, ClogmanPlugin plugin, ClogmanConfig config)
+    public ClogmanOverlay(Client client, ClogmanPlugin plugin, ClogmanConfig config, ItemManager itemManager)
     {
         this.client = client;
         this.plugin = plugin;
         this.config = config;
+        this.dimmedImages = new DimmedImageCache(itemManager);
 
+        updateDimColors();
         showOnInventory();
         showOnBank();
     }
 
+    /**
+     * Rebuilds the dim colors from the opacity config and drops the cached greyscale sprites.
+     * Disables the overlay if widget opacity dimming is used instead.
+     */
+    void updateDimColors()
+    {
+        ClogmanConfig.DimMode mode = config.dimMode();
+        enabled = mode != ClogmanConfig.DimMode.WIDGET_OPACITY;
+        greyscale = mode == ClogmanConfig.DimMode.GREYSCALE;
+        dimmedImages.clear();
+        inventoryOpacity = config.inventoryOpacity();
+        bankOpacity = config.bankOpacity();
+        inventoryDim = new Color(0, 0, 0, 255 - inventoryOpacity);
+        bankDim = new Color(0, 0, 0, 255 - bankOpacity);
+    }
+
     @Override
     public void renderItemOverlay(Graphics2D graphics, int itemId, WidgetItem widgetItem)
     {
-        if (plugin.isItemLocked(itemId))
+        if (!enabled)
+        {
+            return;
+        }
+
+        // Work out which container the slot belongs to
+        Widget widget = widgetItem.getWidget();
+        boolean inBank = false;
+        if (widget != null)
+        {
+            int parentId = widget.getParentId();
+            if (parentId != lastParentId)
+            {
+                lastParentId = parentId;
+                lastInBank = isBank(parentId);
+            }
+            inBank = lastInBank;
+        }
+
+        // Slot widgets are indexed like their container (bank side panel is the inventory)
+        int containerId = inBank ? BANK_CONTAINER_ID : INVENTORY_CONTAINER_ID;
+        if (plugin.getLockedSlotCache().isLocked(containerId, widgetItem.getIndex(), itemId))
         {
             Rectangle bounds = widgetItem.getCanvasBounds();
             if (bounds == null)
@@ -39,29 +98,28 @@ public class ClogmanOverlay extends WidgetItemOverlay
                 return;
             }
 
-            // Determine opacity based on where item is displayed
-            int opacity;
-            Widget widget = widgetItem.getWidget();
-            if (widget != null && isInBank(widget))
-            {
-                opacity = config.bankOpacity();
-            }
-            else
+            // Cover the item with its greyscale sprite once that has loaded
+            if (greyscale)
             {
-                opacity = config.inventoryOpacity();
+                int opacity = inBank ? bankOpacity : inventoryOpacity;
+                BufferedImage image = dimmedImages.get(inBank ? DimmedImageCache.BANK : DimmedImageCache.INVENTORY,
+                    widgetItem.getIndex(), itemId, widgetItem.getQuantity(), opacity);
+                if (image != null)
+                {
+                    graphics.drawImage(image, bounds.x, bounds.y, null);
+                    return;
+                }
             }
 
             // Draw a semi-transparent overlay to dim the item
-            Color dimColor = new Color(0, 0, 0, 255 - opacity);
-            graphics.setColor(dimColor);
+            graphics.setColor(inBank ? bankDim : inventoryDim);
             graphics.fill(bounds);
         }
     }
 
-    private boolean isInBank(Widget widget)
+    private static boolean isBank(int widgetId)
     {
         // Bank item container is group 12 (WidgetID.BANK_GROUP_ID)
-        int groupId = widget.getParentId() >> 16;
-        return groupId == 12;
+        return widgetId >> 16 == 12;
     }
 }
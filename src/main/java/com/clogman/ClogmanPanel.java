@@ -20,7 +20,7 @@ import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 public class ClogmanPanel extends PluginPanel
 {
@@ -211,15 +211,15 @@ public class ClogmanPanel extends PluginPanel
 
     private void updateFromPlugin()
     {
-        Map<Integer, ClogmanPlugin.ClogItem> clogItems = plugin.getCollectionLogItems();
+        UnlockSnapshot snapshot = plugin.getSnapshot();
+        ClogDataset dataset = snapshot.getDataset();
         allEntries = new ArrayList<>();
         allLockedEntries = new ArrayList<>();
 
         // Build unlocked items list
-        for (Integer itemId : plugin.getUnlockedClogItems())
+        for (Integer itemId : snapshot.getUnlocked())
         {
-            ClogmanPlugin.ClogItem clogItem = clogItems.get(itemId);
-            String name = clogItem != null ? clogItem.name : "Unknown (ID: " + itemId + ")";
+            String name = getClogName(dataset, itemId);
 
             // Pre-load and cache icon
             BufferedImage img = itemManager.getImage(itemId);
@@ -229,10 +229,9 @@ public class ClogmanPanel extends PluginPanel
         }
 
         // Build locked items list
-        for (Integer itemId : plugin.getManuallyRemoved())
+        for (Integer itemId : snapshot.getManuallyRemoved())
         {
-            ClogmanPlugin.ClogItem clogItem = clogItems.get(itemId);
-            String name = clogItem != null ? clogItem.name : "Unknown (ID: " + itemId + ")";
+            String name = getClogName(dataset, itemId);
 
             // Pre-load and cache icon
             BufferedImage img = itemManager.getImage(itemId);
@@ -246,31 +245,43 @@ public class ClogmanPanel extends PluginPanel
         allLockedEntries.sort(Comparator.comparing(e -> e.name.toLowerCase()));
 
         // Update stats
-        int unlocked = plugin.getUnlockedCount();
-        int total = plugin.getTotalClogItems();
+        int unlocked = snapshot.getUnlocked().size();
+        int total = dataset.getClogCount();
         statsLabel.setText("Unlocked: " + unlocked + " / " + total);
 
         // Apply current filter
         filterLists();
     }
 
+    private static String getClogName(ClogDataset dataset, int itemId)
+    {
+        int ordinal = dataset.getOrdinal(itemId);
+        return ordinal >= 0 ? dataset.getClogName(ordinal) : "Unknown (ID: " + itemId + ")";
+    }
+
     private void filterLists()
     {
         String search = searchField.getText().toLowerCase().trim();
         boolean manualOnly = manualOnlyCheckbox.isSelected();
+        Set<Integer> manuallyAdded = plugin.getManuallyAdded();
+
+        // Word-prefix matches from the dataset's name index (ignoring punctuation), plus plain
+        // substring matches for anything the index doesn't find
+        ClogDataset dataset = plugin.getDataset();
+        long[] matches = search.isEmpty() ? null : dataset.searchNames(search);
 
         // Filter unlock list
         listModel.clear();
         for (UnlockEntry entry : allEntries)
         {
             // Check search filter
-            if (!search.isEmpty() && !entry.name.toLowerCase().contains(search))
+            if (matches != null && !matchesSearch(dataset, matches, entry, search))
             {
                 continue;
             }
 
             // Check manual-only filter
-            if (manualOnly && !plugin.getManuallyAdded().contains(entry.itemId))
+            if (manualOnly && !manuallyAdded.contains(entry.itemId))
             {
                 continue;
             }
@@ -283,13 +294,20 @@ public class ClogmanPanel extends PluginPanel
         for (UnlockEntry entry : allLockedEntries)
         {
             // Only apply search filter to locked list (manual-only doesn't apply here)
-            if (search.isEmpty() || entry.name.toLowerCase().contains(search))
+            if (matches == null || matchesSearch(dataset, matches, entry, search))
             {
                 lockedListModel.addElement(entry);
             }
         }
     }
 
+    private static boolean matchesSearch(ClogDataset dataset, long[] matches, UnlockEntry entry, String search)
+    {
+        int ordinal = dataset.getOrdinal(entry.itemId);
+        // e.g. "body" isn't a word of "Rune platebody"
+        return (ordinal >= 0 && Bits.get(matches, ordinal)) || entry.name.toLowerCase().contains(search);
+    }
+
     private void onAdd()
     {
         // Use chatbox item search to find and add an item
@@ -317,7 +335,6 @@ public class ClogmanPanel extends PluginPanel
                         if (clogId != null)
                         {
                             plugin.unlockItem(clogId, true);
-                            refresh();
                         }
                         else
                         {
@@ -341,23 +358,10 @@ public class ClogmanPanel extends PluginPanel
      */
     private Integer findClogItemId(int itemId)
     {
-        // Direct match
-        if (plugin.getCollectionLogItems().containsKey(itemId))
-        {
-            return itemId;
-        }
-
-        // Check if it's a variant of a clog item
-        for (Map.Entry<Integer, ClogmanPlugin.ClogItem> entry : plugin.getCollectionLogItems().entrySet())
-        {
-            ClogmanPlugin.ClogItem clogItem = entry.getValue();
-            if (clogItem.getAllIds().contains(itemId))
-            {
-                return entry.getKey();
-            }
-        }
-
-        return null;
+        // Direct match or variant of a clog item
+        ClogDataset dataset = plugin.getDataset();
+        int ordinal = dataset.getOwningOrdinal(itemId);
+        return ordinal >= 0 ? dataset.getClogId(ordinal) : null;
     }
 
     private void onLock()
@@ -375,11 +379,22 @@ public class ClogmanPanel extends PluginPanel
 
         if (confirm == JOptionPane.YES_OPTION)
         {
-            for (UnlockEntry entry : selected)
+            clientThread.invoke(() ->
             {
-                plugin.lockItem(entry.itemId);
-            }
-            refresh();
+                // One save, recompute and refresh for the whole selection
+                plugin.beginTransaction();
+                try
+                {
+                    for (UnlockEntry entry : selected)
+                    {
+                        plugin.lockItem(entry.itemId);
+                    }
+                }
+                finally
+                {
+                    plugin.commitTransaction();
+                }
+            });
         }
     }
 
@@ -398,12 +413,23 @@ public class ClogmanPanel extends PluginPanel
 
         if (confirm == JOptionPane.YES_OPTION)
         {
-            for (UnlockEntry entry : selected)
+            clientThread.invoke(() ->
             {
-                // Re-add to unlocked items
-                plugin.unlockItem(entry.itemId, true);
-            }
-            refresh();
+                // One save, recompute and refresh for the whole selection
+                plugin.beginTransaction();
+                try
+                {
+                    for (UnlockEntry entry : selected)
+                    {
+                        // Re-add to unlocked items
+                        plugin.unlockItem(entry.itemId, true);
+                    }
+                }
+                finally
+                {
+                    plugin.commitTransaction();
+                }
+            });
         }
     }
 
@@ -424,8 +450,7 @@ public class ClogmanPanel extends PluginPanel
 
         if (confirm == JOptionPane.YES_OPTION)
         {
-            plugin.resetManualChanges();
-            refresh();
+            clientThread.invoke(plugin::resetManualChanges);
         }
     }
 
@@ -444,8 +469,7 @@ public class ClogmanPanel extends PluginPanel
 
         if (confirm == JOptionPane.YES_OPTION)
         {
-            plugin.resetAllUnlocks();
-            refresh();
+            clientThread.invoke(plugin::resetAllUnlocks);
         }
     }
 
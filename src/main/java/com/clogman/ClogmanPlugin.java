@@ -1,8 +1,6 @@
 package com.clogman;
 
 import com.google.gson.Gson;
-import com.google.gson.annotations.SerializedName;
-import com.google.gson.reflect.TypeToken;
 import com.google.inject.Provides;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -11,6 +9,7 @@ import net.runelite.api.events.*;
 import net.runelite.api.widgets.ComponentID;
 import net.runelite.api.widgets.InterfaceID;
 import net.runelite.api.widgets.Widget;
+import net.runelite.api.widgets.WidgetUtil;
 import net.runelite.client.callback.ClientThread;
 import net.runelite.client.chat.ChatColorType;
 import net.runelite.client.chat.ChatMessageBuilder;
@@ -26,17 +25,19 @@ import net.runelite.client.game.chatbox.ChatboxItemSearch;
 import net.runelite.client.ui.ClientToolbar;
 import net.runelite.client.ui.NavigationButton;
 import net.runelite.client.ui.overlay.OverlayManager;
-import net.runelite.client.util.ColorUtil;
 import net.runelite.client.util.ImageUtil;
 import net.runelite.client.util.Text;
 
 import javax.inject.Inject;
 import java.awt.image.BufferedImage;
 import java.awt.Color;
+import java.io.BufferedInputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @PluginDescriptor(
@@ -47,19 +48,32 @@ import java.util.*;
 public class ClogmanPlugin extends Plugin
 {
     private static final String CONFIG_GROUP = "clogman";
+    private static final String UNLOCK_STATE_KEY = "unlockState";
+
+    // Second trade screen and the Grand Exchange collection box, which have no InterfaceID constants
+    private static final int TRADE_CONFIRMATION_GROUP = 334;
+    private static final int GRAND_EXCHANGE_COLLECTION_BOX_GROUP = 402;
+
+    // Interfaces that put items into the inventory without them being drops
+    private static final int[] ITEM_TRANSFER_GROUPS = {
+        InterfaceID.BANK, InterfaceID.TRADE, TRADE_CONFIRMATION_GROUP, InterfaceID.GROUP_STORAGE, InterfaceID.SEED_VAULT,
+        InterfaceID.SHOP, InterfaceID.GRAND_EXCHANGE, GRAND_EXCHANGE_COLLECTION_BOX_GROUP, InterfaceID.LOOTING_BAG
+    };
+
+    // Longest a change to the unlock state waits before it's written
+    private static final int SAVE_DELAY_SECONDS = 5;
+
+    // Legacy JSON keys, migrated to UNLOCK_STATE_KEY on load
     private static final String UNLOCKED_ITEMS_KEY = "unlockedItems";
     private static final String MANUALLY_ADDED_KEY = "manuallyAdded";
     private static final String MANUALLY_REMOVED_KEY = "manuallyRemoved";
 
+    // Game message sent for a new collection log item (if the player has it enabled)
+    private static final String NEW_CLOG_ITEM_MESSAGE = "New item added to your collection log: ";
+
     // Script ID for collection log draw (fires when changing tabs/pages)
     private static final int COLLECTION_LOG_DRAW_LIST_SCRIPT = 2731;
 
-    // Actions that should be restricted for locked items (O(1) lookup)
-    private static final Set<String> RESTRICTED_ACTIONS = Set.of(
-        "wear", "wield", "equip", "eat", "drink", "use",
-        "read", "open", "rub", "break", "activate", "commune"
-    );
-
     @Inject
     private Client client;
 
@@ -93,55 +107,116 @@ public class ClogmanPlugin extends Plugin
     @Inject
     private ClogmanOverlay overlay;
 
+    @Inject
+    private ScheduledExecutorService executor;
+
     private ClogmanPanel panel;
     private NavigationButton navButton;
+    private WidgetDimmer widgetDimmer;
 
-    // Collection log items loaded from JSON (id -> ClogItem)
-    @Getter
-    private Map<Integer, ClogItem> collectionLogItems = new HashMap<>();
+    // Locked slots of the inventory and bank, shared by the overlay and dimmer
+    private LockedSlotCache lockedSlotCache;
 
-    // Derived items loaded from JSON (name -> DerivedItem)
+    // Restriction data (clog items, derived items and their lookup indexes)
+    // Loaded in the background and published in one step once complete
     @Getter
-    private Map<String, DerivedItem> derivedItems = new HashMap<>();
+    private volatile ClogDataset dataset = ClogDataset.EMPTY;
+
+    // Whether the restriction data has been published (until then isItemLocked() fails open/closed per config)
+    private volatile boolean dataReady = false;
+
+    // Incremented on each start so a load finishing after a restart is discarded
+    private volatile int loadGeneration = 0;
+
+    // Work requested before the restriction data was ready, run once it is
+    private boolean pendingLoad = false;
+    private boolean pendingRecalc = false;
 
     // Set of unlocked collection log item IDs for the current player
+    // The sets and engine are only touched on the client thread, other threads read the snapshot
     private Set<Integer> unlockedClogItems = new HashSet<>();
 
     // Track manually added unlocks (user added via panel, not from clog scan)
-    @Getter
     private Set<Integer> manuallyAdded = new HashSet<>();
 
     // Track manually removed/locked items (user locked via panel despite being in clog)
-    @Getter
     private Set<Integer> manuallyRemoved = new HashSet<>();
 
-    // Cache of items that are currently available (unlocked or dependencies met)
+    // Effective unlocks and derived item availability as ordinal bitsets (created once data is ready)
+    private UnlockEngine engine;
+
+    // Immutable copy of the state above, replaced after every change
     @Getter
-    private Set<Integer> availableItems = new HashSet<>();
+    private volatile UnlockSnapshot snapshot = UnlockSnapshot.EMPTY;
+
+    // Open unlock transactions (see beginTransaction) and what they've changed so far
+    private int transactionDepth = 0;
+    private boolean transactionDirty = false;
+    private boolean transactionAnnounce = false;
+    private final List<String> transactionUnlocks = new ArrayList<>();
 
-    // Name to ID mapping for quick lookups (clog items)
-    private Map<String, Integer> itemNameToId = new HashMap<>();
+    // The unlock state of savePlayer changed since it was last written, and whether a write is
+    // already scheduled (see requestSave)
+    private boolean saveDirty = false;
+    private boolean saveScheduled = false;
+    private String savePlayer;
 
-    // Map any clog item ID (including variants) to its primary ID
-    private Map<Integer, Integer> clogIdToPrimaryId = new HashMap<>();
+    // Bumped on shutdown so a write scheduled before it doesn't run against the next start
+    private int saveGeneration = 0;
 
-    // Derived items by ID for quick lookups
-    private Map<Integer, DerivedItem> derivedItemsById = new HashMap<>();
+    // A GE search happened since the last client tick, its results still need filtering
+    private boolean grandExchangeFilterPending = false;
+
+    // Menu option classification and gray variants, cached by raw option string
+    private final MenuOptions menuOptions = new MenuOptions();
+
+    // Which menu actions are restricted, rebuilt from the config when it changes
+    private volatile RestrictionTable restrictions = RestrictionTable.EMPTY;
 
     // Track collection log interface state
     private boolean collectionLogOpen = false;
 
+    // Picks up new unlocks from the collection log count varp and inventory arrivals
+    private final UnlockDetector unlockDetector = new UnlockDetector(this);
+
+    // In-game names of every clog item ID (variants included), for unlock messages that don't
+    // use the collection log name. Built from the item compositions at login, client thread only.
+    private NameIndex variantNames;
+
+    // A collection log redraw happened since the last client tick, the page still needs scanning
+    private boolean collectionLogScanPending = false;
+
+    // Collection log pages synced since the unlocks were loaded, by page title, with a fingerprint
+    // of the (item ID, obtained) state they were scanned in. A page seen again in the same state
+    // is skipped. Forgotten whenever the unlocks change other than through a scan.
+    private final Map<String, Long> scannedPages = new HashMap<>();
+
     // Chat icon offset in the modIcons array (-1 means not loaded yet)
     private int chatIconOffset = -1;
 
+    // Icon tag and icon-prefixed names for the chatbox input and chat messages
+    private final ChatIconPrefix chatIconPrefix = new ChatIconPrefix();
+
     // Track when player is actually logging in (not just scene loading)
     private boolean loggingIn = false;
 
     @Override
     protected void startUp() throws Exception
     {
-        loadRestrictionData();
+        restrictions = RestrictionTable.build(config);
+
+        // Load restriction data off the client thread, it's published via onRestrictionDataLoaded
+        final int generation = ++loadGeneration;
+        executor.execute(() ->
+        {
+            ClogDataset loaded = loadRestrictionData();
+            clientThread.invoke(() -> onRestrictionDataLoaded(generation, loaded));
+        });
+
+        overlay.updateDimColors();
         overlayManager.add(overlay);
+        lockedSlotCache = new LockedSlotCache(client, this);
+        widgetDimmer = new WidgetDimmer(client, this, config);
 
         // Create and register the side panel
         panel = new ClogmanPanel(this, itemManager, client, clientThread, chatboxItemSearch);
@@ -160,24 +235,41 @@ public class ClogmanPlugin extends Plugin
 
         if (client.getGameState() == GameState.LOGGED_IN)
         {
-            loadUnlockedItems();
-            recalculateAvailableItems();
-            panel.refresh();
+            clientThread.invokeLater(this::tryLoadUnlockedItems);
         }
     }
 
     @Override
     protected void shutDown() throws Exception
     {
+        loadGeneration++;
+        dataReady = false;
+        dataset = ClogDataset.EMPTY;
+        pendingLoad = false;
+        pendingRecalc = false;
         overlayManager.remove(overlay);
+        clientThread.invoke(widgetDimmer::reset);
         clientToolbar.removeNavigation(navButton);
-        unlockedClogItems.clear();
-        manuallyAdded.clear();
-        manuallyRemoved.clear();
-        availableItems.clear();
+
+        // The unlock state belongs to the client thread: write what's pending, then drop it there.
+        // A save still scheduled is abandoned, the next start schedules its own.
+        clientThread.invoke(() ->
+        {
+            flushSave();
+            saveGeneration++;
+            saveScheduled = false;
+            unlockedClogItems.clear();
+            manuallyAdded.clear();
+            manuallyRemoved.clear();
+            engine = null;
+            variantNames = null;
+            snapshot = UnlockSnapshot.EMPTY;
+        });
+        restrictions = RestrictionTable.EMPTY;
         panel = null;
         navButton = null;
         chatIconOffset = -1;
+        chatIconPrefix.setIconOffset(-1);
     }
 
     @Provides
@@ -186,73 +278,95 @@ public class ClogmanPlugin extends Plugin
         return configManager.getConfig(ClogmanConfig.class);
     }
 
-    private void loadRestrictionData()
+    /**
+     * Loads the restriction data. Runs on a background thread and must not touch plugin state.
+     * Returns an empty dataset if nothing could be loaded.
+     */
+    private ClogDataset loadRestrictionData()
     {
+        long start = System.nanoTime();
+
+        // Prefer the binary snapshot compiled from the JSON at build time
+        try (InputStream is = getClass().getResourceAsStream("/clog_restrictions.bin"))
+        {
+            if (is != null)
+            {
+                ClogDataset loaded = ClogDataset.read(new BufferedInputStream(is));
+                log.info("Loaded {} collection log items and {} derived items in {}ms",
+                    loaded.getClogCount(), loaded.getDerivedCount(), (System.nanoTime() - start) / 1_000_000);
+                return loaded;
+            }
+        }
+        catch (Exception e)
+        {
+            log.error("Failed to load restriction snapshot", e);
+        }
+
+        log.warn("Restriction snapshot unavailable, falling back to clog_restrictions.json");
+
         try (InputStream is = getClass().getResourceAsStream("/clog_restrictions.json"))
         {
             if (is == null)
             {
                 log.error("Could not find clog_restrictions.json in resources");
-                return;
+                return ClogDataset.EMPTY;
             }
 
-            try (InputStreamReader reader = new InputStreamReader(is))
+            try (InputStreamReader reader = new InputStreamReader(is, StandardCharsets.UTF_8))
             {
-                Type type = new TypeToken<RestrictionData>(){}.getType();
-                RestrictionData data = gson.fromJson(reader, type);
-
-                if (data != null)
-                {
-                    if (data.collectionLogItems != null)
-                    {
-                        collectionLogItems = data.collectionLogItems;
-                        // Build name to ID mapping and all-IDs to primary mapping
-                        int totalClogIdMappings = 0;
-                        for (Map.Entry<Integer, ClogItem> entry : collectionLogItems.entrySet())
-                        {
-                            Integer primaryId = entry.getKey();
-                            ClogItem clogItem = entry.getValue();
-
-                            itemNameToId.put(clogItem.name.toLowerCase(), primaryId);
-
-                            // Map all variant IDs to this primary ID
-                            for (Integer variantId : clogItem.getAllIds())
-                            {
-                                clogIdToPrimaryId.put(variantId, primaryId);
-                                totalClogIdMappings++;
-                            }
-                            // Also ensure primary ID is mapped
-                            if (!clogIdToPrimaryId.containsKey(primaryId))
-                            {
-                                clogIdToPrimaryId.put(primaryId, primaryId);
-                                totalClogIdMappings++;
-                            }
-                        }
-                        log.info("Loaded {} collection log items ({} ID mappings)", collectionLogItems.size(), totalClogIdMappings);
-                    }
-
-                    if (data.derivedItems != null)
-                    {
-                        derivedItems = data.derivedItems;
-                        // Build ID to derived item mapping (including all variant IDs)
-                        int totalIdMappings = 0;
-                        for (DerivedItem derived : derivedItems.values())
-                        {
-                            for (Integer id : derived.getAllItemIds())
-                            {
-                                derivedItemsById.put(id, derived);
-                                totalIdMappings++;
-                            }
-                        }
-                        log.info("Loaded {} derived items ({} ID mappings)", derivedItems.size(), totalIdMappings);
-                    }
-                }
+                ClogDataset loaded = ClogDatasetBuilder.fromJson(reader);
+                log.info("Loaded {} collection log items and {} derived items from JSON in {}ms",
+                    loaded.getClogCount(), loaded.getDerivedCount(), (System.nanoTime() - start) / 1_000_000);
+                return loaded;
             }
         }
         catch (Exception e)
         {
             log.error("Failed to load restriction data", e);
         }
+
+        return ClogDataset.EMPTY;
+    }
+
+    /**
+     * Publishes the loaded restriction data on the client thread and runs any
+     * unlock loading or recalculation that was requested while it was loading.
+     */
+    private void onRestrictionDataLoaded(int generation, ClogDataset loaded)
+    {
+        // Plugin was stopped (or restarted) while loading
+        if (generation != loadGeneration)
+        {
+            return;
+        }
+
+        dataset = loaded;
+        engine = new UnlockEngine(loaded);
+        variantNames = null;
+        dataReady = true;
+        publishSnapshot();
+
+        if (pendingLoad)
+        {
+            pendingLoad = false;
+            pendingRecalc = false;
+            tryLoadUnlockedItems();
+        }
+        else if (pendingRecalc)
+        {
+            pendingRecalc = false;
+            recalculateAvailableItems();
+            if (panel != null)
+            {
+                panel.refresh();
+            }
+        }
+
+        // Pick up the page that was open while we were loading
+        if (collectionLogOpen)
+        {
+            collectionLogScanPending = true;
+        }
     }
 
     /**
@@ -288,6 +402,7 @@ public class ClogmanPlugin extends Plugin
         final IndexedSprite[] newModIcons = Arrays.copyOf(modIcons, modIcons.length + 1);
         newModIcons[newModIcons.length - 1] = indexedSprite;
         client.setModIcons(newModIcons);
+        chatIconPrefix.setIconOffset(chatIconOffset);
 
         log.debug("Loaded clogman chat icon at offset {}", chatIconOffset);
     }
@@ -315,10 +430,20 @@ public class ClogmanPlugin extends Plugin
         }
         else if (event.getGameState() == GameState.LOGIN_SCREEN)
         {
+            flushSave();
             unlockedClogItems.clear();
             manuallyAdded.clear();
             manuallyRemoved.clear();
-            availableItems.clear();
+            if (engine != null)
+            {
+                engine.clear();
+            }
+            publishSnapshot();
+            lockedSlotCache.clear();
+            unlockDetector.reset();
+            forgetScannedPages();
+            chatIconPrefix.clearNames();
+            pendingLoad = false;
             loggingIn = false;
         }
     }
@@ -331,14 +456,32 @@ public class ClogmanPlugin extends Plugin
             return;
         }
 
-        // Recalculate available items when clue restriction setting changes
+        restrictions = RestrictionTable.build(config);
+        overlay.updateDimColors();
+
+        // Apply or clear widget dimming when the mode or opacity changes
+        switch (event.getKey())
+        {
+            case "dimMode":
+            case "inventoryOpacity":
+            case "bankOpacity":
+                clientThread.invokeLater(widgetDimmer::apply);
+                break;
+        }
+
+        // Recalculate available items when clue restriction setting changes. The engine and
+        // unlock state belong to the client thread, ConfigChanged is usually posted on the EDT.
         if (event.getKey().equals("restrictClueItems"))
         {
-            recalculateAvailableItems();
-            if (panel != null)
+            clientThread.invoke(() ->
             {
-                panel.refresh();
-            }
+                forgetScannedPages();
+                recalculateAvailableItems();
+                if (panel != null)
+                {
+                    panel.refresh();
+                }
+            });
         }
     }
 
@@ -377,25 +520,13 @@ public class ClogmanPlugin extends Plugin
             return;
         }
 
-        String text = chatboxInput.getText();
-        int colonIdx = text.indexOf(':');
-        if (colonIdx == -1)
-        {
-            return;
-        }
-
-        // Get the current name portion (may include channel prefix like "[CC]")
-        String namePortion = text.substring(0, colonIdx);
-
-        // Avoid adding icon if already present
-        if (namePortion.contains("<img=" + chatIconOffset + ">"))
+        // Insert icon at the beginning of the name (which may include a channel prefix like "[CC]"),
+        // unless it's already there
+        String newText = chatIconPrefix.prefixInput(chatboxInput.getText());
+        if (newText != null)
         {
-            return;
+            chatboxInput.setText(newText);
         }
-
-        // Insert icon at the beginning of the name
-        String newText = "<img=" + chatIconOffset + ">" + namePortion + text.substring(colonIdx);
-        chatboxInput.setText(newText);
     }
 
     /**
@@ -411,9 +542,22 @@ public class ClogmanPlugin extends Plugin
             return false;
         }
 
+        // Restriction data still loading - finish this once it's published
+        if (!dataReady)
+        {
+            pendingLoad = true;
+            return true;
+        }
+
         loadUnlockedItems();
         recalculateAvailableItems();
 
+        // Once per dataset, while logging in rather than on the first unlock message
+        if (variantNames == null)
+        {
+            variantNames = buildVariantNames();
+        }
+
         // Send reminder to open collection log if no items synced yet
         if (unlockedClogItems.isEmpty())
         {
@@ -445,6 +589,9 @@ public class ClogmanPlugin extends Plugin
 
     private void loadUnlockedItems()
     {
+        // Anything pending belongs to the state being replaced
+        flushSave();
+        forgetScannedPages();
         unlockedClogItems.clear();
         manuallyAdded.clear();
         manuallyRemoved.clear();
@@ -456,66 +603,49 @@ public class ClogmanPlugin extends Plugin
             return;
         }
 
-        // Load unlocked items
-        String unlockedKey = playerName + "." + UNLOCKED_ITEMS_KEY;
-        String savedUnlocked = configManager.getConfiguration(CONFIG_GROUP, unlockedKey);
-
-        if (savedUnlocked != null && !savedUnlocked.isEmpty())
+        String saved = configManager.getConfiguration(CONFIG_GROUP, playerName + "." + UNLOCK_STATE_KEY);
+        if (saved != null && !saved.isEmpty())
         {
             try
             {
-                Type type = new TypeToken<Set<Integer>>(){}.getType();
-                Set<Integer> loaded = gson.fromJson(savedUnlocked, type);
-                if (loaded != null)
-                {
-                    unlockedClogItems.addAll(loaded);
-                }
+                int[][] sets = UnlockStateCodec.decode(saved);
+                addAll(unlockedClogItems, sets[0]);
+                addAll(manuallyAdded, sets[1]);
+                addAll(manuallyRemoved, sets[2]);
             }
-            catch (Exception e)
+            catch (IllegalArgumentException e)
             {
-                log.error("Failed to load unlocked items", e);
+                log.error("Failed to load unlock state", e);
             }
         }
-
-        // Load manually added items
-        String manualAddKey = playerName + "." + MANUALLY_ADDED_KEY;
-        String savedManualAdd = configManager.getConfiguration(CONFIG_GROUP, manualAddKey);
-
-        if (savedManualAdd != null && !savedManualAdd.isEmpty())
+        else
         {
-            try
+            String[] legacyKeys = {UNLOCKED_ITEMS_KEY, MANUALLY_ADDED_KEY, MANUALLY_REMOVED_KEY};
+            List<Set<Integer>> targets = Arrays.asList(unlockedClogItems, manuallyAdded, manuallyRemoved);
+            boolean found = false;
+            boolean failed = false;
+            for (int i = 0; i < legacyKeys.length; i++)
             {
-                Type type = new TypeToken<Set<Integer>>(){}.getType();
-                Set<Integer> loaded = gson.fromJson(savedManualAdd, type);
-                if (loaded != null)
+                try
                 {
-                    manuallyAdded.addAll(loaded);
+                    found |= loadLegacyItems(playerName, legacyKeys[i], targets.get(i));
+                }
+                catch (Exception e)
+                {
+                    failed = true;
+                    log.error("Failed to load {}", legacyKeys[i], e);
                 }
             }
-            catch (Exception e)
-            {
-                log.error("Failed to load manually added items", e);
-            }
-        }
 
-        // Load manually removed items
-        String manualRemoveKey = playerName + "." + MANUALLY_REMOVED_KEY;
-        String savedManualRemove = configManager.getConfiguration(CONFIG_GROUP, manualRemoveKey);
-
-        if (savedManualRemove != null && !savedManualRemove.isEmpty())
-        {
-            try
+            // Move to the compact format and drop the JSON keys, unless that would lose data
+            if (found && !failed)
             {
-                Type type = new TypeToken<Set<Integer>>(){}.getType();
-                Set<Integer> loaded = gson.fromJson(savedManualRemove, type);
-                if (loaded != null)
+                writeUnlockState(playerName, unlockedClogItems, manuallyAdded, manuallyRemoved);
+                for (String key : legacyKeys)
                 {
-                    manuallyRemoved.addAll(loaded);
+                    configManager.unsetConfiguration(CONFIG_GROUP, playerName + "." + key);
                 }
-            }
-            catch (Exception e)
-            {
-                log.error("Failed to load manually removed items", e);
+                log.info("Migrated unlock state for {} to the compact format", playerName);
             }
         }
 
@@ -523,7 +653,11 @@ public class ClogmanPlugin extends Plugin
             unlockedClogItems.size(), manuallyAdded.size(), manuallyRemoved.size(), playerName);
     }
 
-    private void saveUnlockedItems()
+    /**
+     * Marks the unlock state as changed. It's written within SAVE_DELAY_SECONDS, so a burst of
+     * changes (e.g. a collection log sync) costs one write. Client thread only.
+     */
+    private void requestSave()
     {
         String playerName = getPlayerConfigKey();
         if (playerName == null)
@@ -532,23 +666,72 @@ public class ClogmanPlugin extends Plugin
             return;
         }
 
-        // Save unlocked items
-        String unlockedKey = playerName + "." + UNLOCKED_ITEMS_KEY;
-        String unlockedJson = gson.toJson(unlockedClogItems);
-        configManager.setConfiguration(CONFIG_GROUP, unlockedKey, unlockedJson);
+        savePlayer = playerName;
+        saveDirty = true;
+        if (!saveScheduled)
+        {
+            saveScheduled = true;
+            int generation = saveGeneration;
+            executor.schedule(() -> clientThread.invokeLater(() ->
+            {
+                if (generation == saveGeneration)
+                {
+                    saveScheduled = false;
+                    flushSave();
+                }
+            }), SAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Writes any pending unlock state change now. The sets are copied on the calling thread,
+     * encoding and the config write happen on the executor.
+     */
+    private void flushSave()
+    {
+        if (!saveDirty)
+        {
+            return;
+        }
+        saveDirty = false;
 
-        // Save manually added items
-        String manualAddKey = playerName + "." + MANUALLY_ADDED_KEY;
-        String manualAddJson = gson.toJson(manuallyAdded);
-        configManager.setConfiguration(CONFIG_GROUP, manualAddKey, manualAddJson);
+        String playerName = savePlayer;
+        Set<Integer> unlocked = new HashSet<>(unlockedClogItems);
+        Set<Integer> added = new HashSet<>(manuallyAdded);
+        Set<Integer> removed = new HashSet<>(manuallyRemoved);
+        executor.execute(() -> writeUnlockState(playerName, unlocked, added, removed));
+    }
 
-        // Save manually removed items
-        String manualRemoveKey = playerName + "." + MANUALLY_REMOVED_KEY;
-        String manualRemoveJson = gson.toJson(manuallyRemoved);
-        configManager.setConfiguration(CONFIG_GROUP, manualRemoveKey, manualRemoveJson);
+    private void writeUnlockState(String playerName, Set<Integer> unlocked, Set<Integer> added, Set<Integer> removed)
+    {
+        String state = UnlockStateCodec.encode(unlocked, added, removed);
+        configManager.setConfiguration(CONFIG_GROUP, playerName + "." + UNLOCK_STATE_KEY, state);
 
         log.debug("Saved {} unlocked items ({} manual, {} locked) for {}",
-            unlockedClogItems.size(), manuallyAdded.size(), manuallyRemoved.size(), playerName);
+            unlocked.size(), added.size(), removed.size(), playerName);
+    }
+
+    /**
+     * Reads one of the legacy JSON item ID sets into the given set. Returns whether the key existed.
+     */
+    private boolean loadLegacyItems(String playerName, String key, Set<Integer> target)
+    {
+        String saved = configManager.getConfiguration(CONFIG_GROUP, playerName + "." + key);
+        if (saved == null || saved.isEmpty())
+        {
+            return false;
+        }
+
+        addAll(target, UnlockStateCodec.decodeLegacy(gson, saved));
+        return true;
+    }
+
+    private static void addAll(Set<Integer> target, int[] itemIds)
+    {
+        for (int itemId : itemIds)
+        {
+            target.add(itemId);
+        }
     }
 
     private String getPlayerConfigKey()
@@ -568,194 +751,227 @@ public class ClogmanPlugin extends Plugin
      */
     public boolean isEffectivelyUnlocked(int clogItemId)
     {
-        return isEffectivelyUnlocked(clogItemId, new HashSet<>());
+        return snapshot.isEffectivelyUnlocked(clogItemId);
     }
 
-    private boolean isEffectivelyUnlocked(int clogItemId, Set<Integer> visited)
+    /**
+     * Recalculates which items are available based on current unlocks
+     */
+    public void recalculateAvailableItems()
     {
-        // Direct unlock - always counts
-        if (unlockedClogItems.contains(clogItemId))
+        if (!dataReady)
         {
-            return true;
+            pendingRecalc = true;
+            return;
         }
 
-        // Not a clog item we know about
-        ClogItem clogItem = collectionLogItems.get(clogItemId);
-        if (clogItem == null)
+        long[] direct = Bits.create(dataset.getClogCount());
+        for (int itemId : unlockedClogItems)
         {
-            return false;
+            int ordinal = dataset.getOrdinal(itemId);
+            if (ordinal >= 0)
+            {
+                Bits.set(direct, ordinal);
+            }
         }
 
         // If clue restrictions are disabled, all clue items are effectively unlocked
-        if (!config.restrictClueItems() && isClueItem(clogItem))
-        {
-            return true;
-        }
-
-        // Cycle detection - prevent infinite recursion
-        if (visited.contains(clogItemId))
-        {
-            return false;
-        }
-        visited.add(clogItemId);
+        engine.recompute(direct, !config.restrictClueItems());
 
-        // Check if any crafting recipe is satisfiable
-        List<List<Integer>> recipes = clogItem.getCraftableFrom();
-        for (List<Integer> recipe : recipes)
-        {
-            boolean recipeWorks = true;
-            for (int depId : recipe)
-            {
-                // Create new visited set for each branch
-                if (!isEffectivelyUnlocked(depId, new HashSet<>(visited)))
-                {
-                    recipeWorks = false;
-                    break;
-                }
-            }
-            if (recipeWorks)
-            {
-                return true;
-            }
-        }
+        log.debug("Recalculated available items: {} clog items, {} derived items",
+            engine.getEffectiveCount(), engine.getDerivedAvailableCount());
 
-        return false;
+        publishSnapshot();
     }
 
     /**
-     * Recalculates which items are available based on current unlocks
+     * Publishes the current unlock state for readers on other threads (overlay, panel).
+     * Must be called on the client thread after every change.
      */
-    public void recalculateAvailableItems()
+    private void publishSnapshot()
     {
-        availableItems.clear();
+        publishSnapshot(null);
+    }
 
-        // Add clog items that are effectively unlocked (actual OR craftable from actual)
-        // This allows using e.g. Onyx if you have Uncut onyx
-        for (Map.Entry<Integer, ClogItem> entry : collectionLogItems.entrySet())
-        {
-            Integer primaryId = entry.getKey();
-            ClogItem clogItem = entry.getValue();
+    /**
+     * Publishes the current unlock state, where delta is everything the engine changed since
+     * the last publish (or null if unknown, which rebuilds the item table)
+     */
+    private void publishSnapshot(UnlockEngine.Delta delta)
+    {
+        snapshot = dataReady && engine != null
+            ? UnlockSnapshot.of(dataset, engine, unlockedClogItems, manuallyAdded, manuallyRemoved, snapshot, delta)
+            : UnlockSnapshot.EMPTY;
+        refreshWidgetDimming();
+    }
 
-            if (isEffectivelyUnlocked(primaryId))
-            {
-                // Add all variant IDs for this clog item
-                availableItems.addAll(clogItem.getAllIds());
-                availableItems.add(primaryId);
-            }
-        }
+    /**
+     * Locked slots of the tracked item containers. Client thread only.
+     */
+    LockedSlotCache getLockedSlotCache()
+    {
+        return lockedSlotCache;
+    }
 
-        // Check derived items - available if any dependency set has all deps unlocked (OR of AND)
-        for (Map.Entry<String, DerivedItem> entry : derivedItems.entrySet())
+    /**
+     * Re-applies widget opacity dimming (if enabled) on the client thread
+     */
+    private void refreshWidgetDimming()
+    {
+        if (widgetDimmer != null && config.dimMode() == ClogmanConfig.DimMode.WIDGET_OPACITY)
         {
-            DerivedItem derived = entry.getValue();
-            List<List<Integer>> depSets = derived.getClogDependencies();
-            if (!depSets.isEmpty())
-            {
-                boolean anySetSatisfied = false;
-                for (List<Integer> depSet : depSets)
-                {
-                    boolean allDepsUnlocked = true;
-                    for (int depId : depSet)
-                    {
-                        if (!isEffectivelyUnlocked(depId))
-                        {
-                            allDepsUnlocked = false;
-                            break;
-                        }
-                    }
-
-                    if (allDepsUnlocked)
-                    {
-                        anySetSatisfied = true;
-                        break;
-                    }
-                }
-
-                if (anySetSatisfied)
-                {
-                    // Add all variant IDs (e.g., different imbue sources)
-                    availableItems.addAll(derived.getAllItemIds());
-                }
-            }
+            clientThread.invokeLater(widgetDimmer::apply);
         }
+    }
 
-        log.debug("Recalculated available items: {} total", availableItems.size());
+    /**
+     * Starts a batch of unlock/lock changes. Until the matching {@link #commitTransaction()},
+     * changes are applied to the unlock state but not recomputed, saved, refreshed or announced.
+     * Transactions may be nested, only the outermost commit does any work. Client thread only.
+     */
+    public void beginTransaction()
+    {
+        transactionDepth++;
     }
 
     /**
-     * Unlocks a collection log item
+     * Finishes a batch started with {@link #beginTransaction()}. If anything changed, does one
+     * recompute, one save, one panel refresh and one combined set of chat messages.
      */
-    public void unlockItem(int itemId, boolean isManual)
+    public void commitTransaction()
     {
-        if (!collectionLogItems.containsKey(itemId))
+        if (transactionDepth == 0)
         {
-            return;
+            throw new IllegalStateException("No transaction in progress");
         }
 
-        if (unlockedClogItems.add(itemId))
+        if (--transactionDepth > 0 || !transactionDirty)
         {
-            ClogItem item = collectionLogItems.get(itemId);
-            log.info("Unlocked collection log item: {} (ID: {})", item.name, itemId);
-
-            // Remove from manually removed if it was there
-            boolean wasManuallyLocked = manuallyRemoved.remove(itemId);
+            return;
+        }
 
-            // Only track as manual addition if this is actually a manual unlock
-            if (isManual && !wasManuallyLocked)
-            {
-                manuallyAdded.add(itemId);
-            }
+        List<String> unlockedNames = new ArrayList<>(transactionUnlocks);
+        boolean announce = transactionAnnounce;
+        transactionDirty = false;
+        transactionAnnounce = false;
+        transactionUnlocks.clear();
 
-            // Capture items available before recalculation
-            Set<Integer> previouslyAvailable = new HashSet<>(availableItems);
+        requestSave();
 
-            saveUnlockedItems();
-            recalculateAvailableItems();
+        UnlockEngine.Delta delta = null;
+        if (dataReady)
+        {
+            delta = engine.collectChanges();
+            publishSnapshot(delta);
+            log.debug("Transaction changed {} clog items and {} derived items",
+                delta.unlocked.length + delta.locked.length, delta.derivedUnlocked.length + delta.derivedLocked.length);
+        }
+        else
+        {
+            pendingRecalc = true;
+        }
 
-            if (config.chatMessageOnUnlock())
-            {
-                sendUnlockMessage(item.name);
-            }
+        if (!unlockedNames.isEmpty() && config.chatMessageOnUnlock())
+        {
+            sendUnlockMessage(unlockedNames);
+        }
 
-            // Show newly available derived items
-            if (config.showNewlyAvailable())
+        // Show newly available derived items
+        if (announce && delta != null && config.showNewlyAvailable())
+        {
+            List<String> newlyAvailable = findNewlyAvailableItems(delta);
+            if (!newlyAvailable.isEmpty())
             {
-                List<String> newlyAvailable = findNewlyAvailableItems(previouslyAvailable);
-                if (!newlyAvailable.isEmpty())
-                {
-                    sendNewlyAvailableMessage(newlyAvailable);
-                }
+                sendNewlyAvailableMessage(newlyAvailable);
             }
+        }
 
-            if (panel != null)
-            {
-                panel.refresh();
-            }
+        if (panel != null)
+        {
+            panel.refresh();
         }
     }
 
     /**
-     * Find derived items that are newly available after an unlock
+     * Adds or removes a direct unlock, keeping the engine in step. Part of a transaction.
+     * Returns true if the unlocked set changed.
      */
-    private List<String> findNewlyAvailableItems(Set<Integer> previouslyAvailable)
+    private boolean setUnlocked(int itemId, boolean unlocked)
     {
-        List<String> newlyAvailable = new ArrayList<>();
-
-        for (Map.Entry<String, DerivedItem> entry : derivedItems.entrySet())
+        boolean changed = unlocked ? unlockedClogItems.add(itemId) : unlockedClogItems.remove(itemId);
+        if (!changed)
         {
-            DerivedItem derived = entry.getValue();
-            List<Integer> itemIds = derived.getAllItemIds();
+            return false;
+        }
 
-            if (itemIds.isEmpty())
+        transactionDirty = true;
+        int ordinal = dataset.getOrdinal(itemId);
+        if (dataReady && ordinal >= 0)
+        {
+            if (unlocked)
             {
-                continue;
+                engine.unlock(ordinal);
+            }
+            else
+            {
+                engine.lock(ordinal);
             }
+        }
+        return true;
+    }
+
+    /**
+     * Unlocks a collection log item
+     */
+    public void unlockItem(int itemId, boolean isManual)
+    {
+        forgetScannedPages();
 
-            // Check if this item is now available but wasn't before
-            int primaryId = itemIds.get(0);
-            if (availableItems.contains(primaryId) && !previouslyAvailable.contains(primaryId))
+        int ordinal = dataset.getOrdinal(itemId);
+        if (ordinal < 0)
+        {
+            return;
+        }
+
+        beginTransaction();
+        try
+        {
+            if (setUnlocked(itemId, true))
             {
-                newlyAvailable.add(derived.name);
+                String itemName = dataset.getClogName(ordinal);
+                log.info("Unlocked collection log item: {} (ID: {})", itemName, itemId);
+
+                // Remove from manually removed if it was there
+                boolean wasManuallyLocked = manuallyRemoved.remove(itemId);
+
+                // Only track as manual addition if this is actually a manual unlock
+                if (isManual && !wasManuallyLocked)
+                {
+                    manuallyAdded.add(itemId);
+                }
+
+                transactionUnlocks.add(itemName);
+                transactionAnnounce = true;
+            }
+        }
+        finally
+        {
+            commitTransaction();
+        }
+    }
+
+    /**
+     * Find derived items that are newly available after an unlock
+     */
+    private List<String> findNewlyAvailableItems(UnlockEngine.Delta delta)
+    {
+        List<String> newlyAvailable = new ArrayList<>();
+
+        for (int index : delta.derivedUnlocked)
+        {
+            if (dataset.getDerivedItemIds(index).length > 0)
+            {
+                newlyAvailable.add(dataset.getDerivedName(index));
             }
         }
 
@@ -768,6 +984,24 @@ public class ClogmanPlugin extends Plugin
      * Send chat message about newly available items
      */
     private void sendNewlyAvailableMessage(List<String> items)
+    {
+        String message = new ChatMessageBuilder()
+            .append(ChatColorType.NORMAL)
+            .append("New items unlocked: ")
+            .append(ChatColorType.HIGHLIGHT)
+            .append(formatItemList(items))
+            .build();
+
+        chatMessageManager.queue(QueuedMessage.builder()
+            .type(ChatMessageType.CONSOLE)
+            .runeLiteFormattedMessage(message)
+            .build());
+    }
+
+    /**
+     * Formats item names as "A, B, C and N more"
+     */
+    private String formatItemList(List<String> items)
     {
         StringBuilder sb = new StringBuilder();
 
@@ -789,17 +1023,7 @@ public class ClogmanPlugin extends Plugin
             sb.append(" and ").append(remaining).append(" more");
         }
 
-        String message = new ChatMessageBuilder()
-            .append(ChatColorType.NORMAL)
-            .append("New items unlocked: ")
-            .append(ChatColorType.HIGHLIGHT)
-            .append(sb.toString())
-            .build();
-
-        chatMessageManager.queue(QueuedMessage.builder()
-            .type(ChatMessageType.CONSOLE)
-            .runeLiteFormattedMessage(message)
-            .build());
+        return sb.toString();
     }
 
     /**
@@ -820,29 +1044,31 @@ public class ClogmanPlugin extends Plugin
      */
     public void lockItem(int itemId)
     {
-        if (unlockedClogItems.remove(itemId))
-        {
-            ClogItem item = collectionLogItems.get(itemId);
-            log.info("Locked item: {} (ID: {})", item != null ? item.name : "Unknown", itemId);
-
-            // Check if this was a manual unlock (not from clog)
-            boolean wasManuallyAdded = manuallyAdded.remove(itemId);
+        forgetScannedPages();
 
-            // Only add to manually removed if it wasn't a manual unlock
-            // (i.e., it's from the actual collection log)
-            if (!wasManuallyAdded)
+        beginTransaction();
+        try
+        {
+            if (setUnlocked(itemId, false))
             {
-                manuallyRemoved.add(itemId);
-            }
+                int ordinal = dataset.getOrdinal(itemId);
+                log.info("Locked item: {} (ID: {})", ordinal >= 0 ? dataset.getClogName(ordinal) : "Unknown", itemId);
 
-            saveUnlockedItems();
-            recalculateAvailableItems();
+                // Check if this was a manual unlock (not from clog)
+                boolean wasManuallyAdded = manuallyAdded.remove(itemId);
 
-            if (panel != null)
-            {
-                panel.refresh();
+                // Only add to manually removed if it wasn't a manual unlock
+                // (i.e., it's from the actual collection log)
+                if (!wasManuallyAdded)
+                {
+                    manuallyRemoved.add(itemId);
+                }
             }
         }
+        finally
+        {
+            commitTransaction();
+        }
     }
 
     /**
@@ -850,18 +1076,27 @@ public class ClogmanPlugin extends Plugin
      */
     public void resetAllUnlocks()
     {
+        forgetScannedPages();
+
         int count = unlockedClogItems.size();
-        unlockedClogItems.clear();
-        manuallyAdded.clear();
-        manuallyRemoved.clear();
-        saveUnlockedItems();
-        recalculateAvailableItems();
-        log.info("Reset all unlocks. Cleared {} items.", count);
 
-        if (panel != null)
+        beginTransaction();
+        try
         {
-            panel.refresh();
+            for (int itemId : new ArrayList<>(unlockedClogItems))
+            {
+                setUnlocked(itemId, false);
+            }
+            manuallyAdded.clear();
+            manuallyRemoved.clear();
+            transactionDirty = true;
         }
+        finally
+        {
+            commitTransaction();
+        }
+
+        log.info("Reset all unlocks. Cleared {} items.", count);
     }
 
     /**
@@ -869,32 +1104,41 @@ public class ClogmanPlugin extends Plugin
      */
     public void resetManualChanges()
     {
+        forgetScannedPages();
+
         int addedCount = manuallyAdded.size();
         int removedCount = manuallyRemoved.size();
 
-        // Re-add manually locked items (they're back in the unlocked list)
-        unlockedClogItems.addAll(manuallyRemoved);
-
-        // Remove manual additions (they weren't real)
-        unlockedClogItems.removeAll(manuallyAdded);
+        beginTransaction();
+        try
+        {
+            // Re-add manually locked items (they're back in the unlocked list)
+            for (int itemId : manuallyRemoved)
+            {
+                setUnlocked(itemId, true);
+            }
 
-        // Clear manual tracking
-        manuallyAdded.clear();
-        manuallyRemoved.clear();
+            // Remove manual additions (they weren't real)
+            for (int itemId : manuallyAdded)
+            {
+                setUnlocked(itemId, false);
+            }
 
-        saveUnlockedItems();
-        recalculateAvailableItems();
+            // Clear manual tracking
+            manuallyAdded.clear();
+            manuallyRemoved.clear();
+            transactionDirty = true;
+        }
+        finally
+        {
+            commitTransaction();
+        }
 
         log.info("Reset manual changes. Re-added {} locked items, removed {} manual additions.",
             removedCount, addedCount);
-
-        if (panel != null)
-        {
-            panel.refresh();
-        }
     }
 
-    private void sendUnlockMessage(String itemName)
+    private void sendUnlockMessage(List<String> itemNames)
     {
         String message = new ChatMessageBuilder()
             .append(ChatColorType.HIGHLIGHT)
@@ -902,7 +1146,7 @@ public class ClogmanPlugin extends Plugin
             .append(ChatColorType.NORMAL)
             .append("Unlocked ")
             .append(ChatColorType.HIGHLIGHT)
-            .append(itemName)
+            .append(formatItemList(itemNames))
             .build();
 
         chatMessageManager.queue(QueuedMessage.builder()
@@ -916,17 +1160,20 @@ public class ClogmanPlugin extends Plugin
      */
     public boolean isItemAvailable(int itemId)
     {
-        // Items not in our data are always available
-        // Check if it's a clog item (primary or variant) or a derived item
-        boolean isClogItem = clogIdToPrimaryId.containsKey(itemId);
-        boolean isDerivedItem = derivedItemsById.containsKey(itemId);
+        return isItemAvailable(snapshot, itemId);
+    }
 
-        if (!isClogItem && !isDerivedItem)
+    private boolean isItemAvailable(UnlockSnapshot current, int itemId)
+    {
+        // Restriction data still loading - fail open or closed depending on config
+        if (!current.isReady())
         {
-            return true;
+            return !config.restrictWhileLoading();
         }
 
-        return availableItems.contains(itemId);
+        // Items not in our data are always available, otherwise any effectively unlocked
+        // clog item (primary or variant) or available derived item listing it unlocks it
+        return current.isItemAvailable(itemId);
     }
 
     /**
@@ -937,83 +1184,195 @@ public class ClogmanPlugin extends Plugin
         return !isItemAvailable(itemId);
     }
 
-    /**
-     * Checks if a clog item is from the Treasure Trails (Clues) section
-     */
-    private boolean isClueItem(ClogItem item)
+    // === MENU ENTRY FILTERING FOR USAGE RESTRICTION ===
+
+    @Subscribe
+    public void onMenuEntryAdded(MenuEntryAdded event)
     {
-        if (item == null || item.tabs == null)
+        if (config.processMenusWhenOpened())
         {
-            return false;
+            return;
         }
-        for (String tab : item.tabs)
+
+        restrictMenuEntry(event.getMenuEntry(), snapshot);
+    }
+
+    @Subscribe
+    public void onPostMenuSort(PostMenuSort event)
+    {
+        // Until the menu is opened only the left-click option matters
+        if (!config.processMenusWhenOpened() || client.isMenuOpen())
         {
-            if (tab.contains("Treasure Trail"))
-            {
-                return true;
-            }
+            return;
         }
-        return false;
-    }
 
-    // === MENU ENTRY FILTERING FOR USAGE RESTRICTION ===
+        MenuEntry[] entries = client.getMenuEntries();
+        UnlockSnapshot current = snapshot;
+
+        // Sink locked options below everything but Cancel (entry 0), as deprioritizing would
+        // have done had they been handled as they were added (it has no effect after sorting)
+        boolean moved = false;
+        for (int i = 1; i < entries.length - 1 && isRestricted(entries[entries.length - 1], current); i++)
+        {
+            MenuEntry top = entries[entries.length - 1];
+            grayMenuEntry(top);
+            System.arraycopy(entries, 1, entries, 2, entries.length - 2);
+            entries[1] = top;
+            moved = true;
+        }
+
+        if (moved)
+        {
+            client.setMenuEntries(entries);
+        }
+    }
 
     @Subscribe
-    public void onMenuEntryAdded(MenuEntryAdded event)
+    public void onMenuOpened(MenuOpened event)
     {
-        if (!config.restrictItemUsage())
+        if (!config.processMenusWhenOpened())
+        {
+            return;
+        }
+
+        // One pass over the whole menu against a single snapshot. The menu is already sorted,
+        // so instead of deprioritizing, locked entries are moved down here.
+        MenuEntry[] entries = event.getMenuEntries();
+        UnlockSnapshot current = snapshot;
+        boolean[] locked = new boolean[entries.length];
+        int lockedCount = 0;
+        for (int i = 0; i < entries.length; i++)
+        {
+            // Entries PostMenuSort already grayed are restricted too, graying them is a no-op
+            if (isRestricted(entries[i], current))
+            {
+                grayMenuEntry(entries[i]);
+                locked[i] = true;
+                lockedCount++;
+            }
+        }
+
+        if (lockedCount == 0)
         {
             return;
         }
 
-        MenuEntry entry = event.getMenuEntry();
-        int itemId = getItemIdFromMenuEntry(entry);
+        // Stable partition: Cancel stays at the bottom (entry 0), then the locked entries, then
+        // the rest, each group in its original order
+        MenuEntry[] reordered = new MenuEntry[entries.length];
+        int bottom = 0;
+        while (bottom < entries.length && entries[bottom].getType() == MenuAction.CANCEL)
+        {
+            reordered[bottom] = entries[bottom];
+            bottom++;
+        }
 
-        if (itemId > 0 && isItemLocked(itemId))
+        int lockedIndex = bottom;
+        int otherIndex = bottom + lockedCount;
+        for (int i = bottom; i < entries.length; i++)
         {
-            String option = Text.removeTags(entry.getOption()).toLowerCase();
-            if (isRestrictedAction(option))
+            if (locked[i])
+            {
+                reordered[lockedIndex++] = entries[i];
+            }
+            else
             {
-                // Gray out the option and deprioritize it
-                entry.setOption(ColorUtil.prependColorTag(entry.getOption(), Color.GRAY));
-                entry.setDeprioritized(true);
+                reordered[otherIndex++] = entries[i];
             }
         }
+        client.setMenuEntries(reordered);
+    }
+
+    /**
+     * Grays out and deprioritizes a menu entry if it uses a locked item.
+     * Returns true if the entry is restricted.
+     */
+    private boolean restrictMenuEntry(MenuEntry entry, UnlockSnapshot current)
+    {
+        if (!isRestricted(entry, current))
+        {
+            return false;
+        }
+
+        grayMenuEntry(entry);
+        entry.setDeprioritized(true);
+        return true;
+    }
+
+    /**
+     * Whether a menu entry uses a locked item in a restricted way
+     */
+    private boolean isRestricted(MenuEntry entry, UnlockSnapshot current)
+    {
+        MenuAction action = entry.getType();
+        String option = entry.getOption();
+        RestrictionTable.Policy policy = getRestriction(action, entry.getParam1(), option);
+        if (policy == null)
+        {
+            return false;
+        }
+
+        int itemId = getRestrictedItemId(policy, action, entry.getIdentifier(), getItemIdFromMenuEntry(entry));
+        return itemId > 0 && !isItemAvailable(current, itemId);
+    }
+
+    private void grayMenuEntry(MenuEntry entry)
+    {
+        String option = entry.getOption();
+        String gray = menuOptions.gray(option);
+        if (gray != option)
+        {
+            entry.setOption(gray);
+        }
     }
 
     @Subscribe
     public void onMenuOptionClicked(MenuOptionClicked event)
     {
-        // Block usage of locked items
-        if (config.restrictItemUsage())
+        MenuAction action = event.getMenuAction();
+        RestrictionTable.Policy policy = getRestriction(action, event.getParam1(), event.getMenuOption());
+        if (policy == null)
         {
-            String option = Text.removeTags(event.getMenuOption()).toLowerCase();
-            if (isRestrictedAction(option))
-            {
-                int itemId = event.getItemId();
-                if (itemId > 0 && isItemLocked(itemId))
-                {
-                    event.consume();
-                    sendLockedMessage("use", itemId);
-                    return;
-                }
-            }
+            return;
         }
 
-        // Block bank withdrawal of locked items
-        if (config.restrictBankWithdraw())
+        // Block using, withdrawing, buying etc. a locked item
+        int itemId = getRestrictedItemId(policy, action, event.getId(), event.getItemId());
+        if (itemId > 0 && isItemLocked(itemId))
         {
-            String option = Text.removeTags(event.getMenuOption()).toLowerCase();
-            if (option.startsWith("withdraw"))
-            {
-                int itemId = event.getItemId();
-                if (itemId > 0 && isItemLocked(itemId))
-                {
-                    event.consume();
-                    sendLockedMessage("withdraw", itemId);
-                }
-            }
+            event.consume();
+            sendLockedMessage(policy.verb, itemId);
+        }
+    }
+
+    /**
+     * Item a restricted menu action acts on: the widget item for most, the identifier for
+     * ground items, or the item being bought for a Grand Exchange offer. -1 if none.
+     */
+    private int getRestrictedItemId(RestrictionTable.Policy policy, MenuAction action, int identifier, int widgetItemId)
+    {
+        if (policy == RestrictionTable.Policy.GE_OFFER)
+        {
+            // Only buy offers are restricted (creation type 0), the item can come from a
+            // search, the offer history or a price checker link, so read it from the varp
+            boolean buying = client.getVarbitValue(Varbits.GE_OFFER_CREATION_TYPE) == 0;
+            return buying ? client.getVarpValue(VarPlayer.CURRENT_GE_ITEM) : -1;
+        }
+        return RestrictionTable.isGroundItem(action) ? identifier : widgetItemId;
+    }
+
+    /**
+     * Restriction policy for a menu action, or null. The option is only classified if some
+     * rule exists for the action. Widget actions carry their widget ID in param1.
+     */
+    private RestrictionTable.Policy getRestriction(MenuAction action, int param1, String option)
+    {
+        RestrictionTable table = restrictions;
+        if (!table.covers(action))
+        {
+            return null;
         }
+        return table.policyFor(action, WidgetUtil.componentToInterface(param1), menuOptions.classify(option));
     }
 
     private int getItemIdFromMenuEntry(MenuEntry entry)
@@ -1041,11 +1400,6 @@ public class ClogmanPlugin extends Plugin
         return -1;
     }
 
-    private boolean isRestrictedAction(String option)
-    {
-        return RESTRICTED_ACTIONS.contains(option);
-    }
-
     // === GRAND EXCHANGE RESTRICTION ===
 
     @Subscribe
@@ -1056,9 +1410,70 @@ public class ClogmanPlugin extends Plugin
             return;
         }
 
-        clientThread.invokeLater(this::filterGrandExchangeResults);
+        // Fires on every keystroke, filter the results once per client tick
+        grandExchangeFilterPending = true;
+    }
+
+    @Subscribe
+    public void onVarbitChanged(VarbitChanged event)
+    {
+        if (event.getVarpId() == UnlockDetector.COLLECTION_LOG_COUNT_VARP)
+        {
+            unlockDetector.onCountChanged(event.getValue(), client.getTickCount());
+        }
+    }
+
+    @Subscribe
+    public void onGameTick(GameTick event)
+    {
+        if (isItemTransferOpen())
+        {
+            unlockDetector.onTransferOpen(client.getTickCount());
+        }
+
+        unlockDetector.onGameTick(client.getTickCount());
     }
 
+    /**
+     * Whether an interface items can be received through (bank, trade, shop, ...) is open
+     */
+    private boolean isItemTransferOpen()
+    {
+        for (int groupId : ITEM_TRANSFER_GROUPS)
+        {
+            if (client.getWidget(groupId, 0) != null)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Subscribe
+    public void onClientTick(ClientTick event)
+    {
+        if (grandExchangeFilterPending)
+        {
+            grandExchangeFilterPending = false;
+            filterGrandExchangeResults();
+        }
+
+        // Tab flipping can redraw the collection log many times a tick, scan once
+        if (collectionLogScanPending)
+        {
+            collectionLogScanPending = false;
+            if (collectionLogOpen)
+            {
+                scanCollectionLog();
+            }
+        }
+    }
+
+    /**
+     * Hides locked items from freshly built GE search results and moves the remaining rows
+     * up over the gaps. Only run once per build, as it reads the row positions the search
+     * script laid out.
+     */
     private void filterGrandExchangeResults()
     {
         Widget grandExchangeSearchResults = client.getWidget(ComponentID.CHATBOX_GE_SEARCH_RESULTS);
@@ -1074,25 +1489,44 @@ public class ClogmanPlugin extends Plugin
         }
 
         // GE search results come in groups of 3: background, item sprite, item name
-        for (int i = 0; i < children.length; i += 3)
-        {
-            if (i + 2 >= children.length)
+        UnlockSnapshot current = snapshot;
+        int rows = children.length / 3;
+        int[] rowY = new int[rows];
+        int kept = 0;
+        int bottom = 0;
+        for (int row = 0; row < rows; row++)
+        {
+            int i = row * 3;
+            rowY[row] = children[i].getOriginalY();
+
+            int itemId = children[i + 2].getItemId();
+            if (itemId > 0 && !isItemAvailable(current, itemId))
             {
-                break;
+                // Hide locked items from search results
+                children[i].setHidden(true);     // Background
+                children[i + 1].setHidden(true); // Item sprite
+                children[i + 2].setHidden(true); // Item name
+                continue;
             }
 
-            Widget itemWidget = children[i + 2];
-            if (itemWidget != null)
+            // Move the row into the first free row position
+            if (kept != row)
             {
-                int itemId = itemWidget.getItemId();
-                if (itemId > 0 && isItemLocked(itemId))
+                int dy = rowY[kept] - rowY[row];
+                for (int j = i; j < i + 3; j++)
                 {
-                    // Hide locked items from search results
-                    children[i].setHidden(true);     // Background
-                    children[i + 1].setHidden(true); // Item sprite
-                    children[i + 2].setHidden(true); // Item name
+                    children[j].setOriginalY(children[j].getOriginalY() + dy);
+                    children[j].revalidate();
                 }
             }
+            bottom = rowY[kept] + children[i].getHeight();
+            kept++;
+        }
+
+        if (kept < rows)
+        {
+            grandExchangeSearchResults.setScrollHeight(bottom);
+            grandExchangeSearchResults.revalidateScroll();
         }
     }
 
@@ -1144,55 +1578,47 @@ public class ClogmanPlugin extends Plugin
         List<String> required = new ArrayList<>();
 
         // Check if it's a clog item itself
-        Integer primaryClogId = clogIdToPrimaryId.get(itemId);
-        if (primaryClogId != null)
+        int ordinal = dataset.getOwningOrdinal(itemId);
+        if (ordinal >= 0)
         {
-            ClogItem clogItem = collectionLogItems.get(primaryClogId);
-            if (clogItem != null && !isEffectivelyUnlocked(primaryClogId))
+            if (!isEffectivelyUnlocked(dataset.getClogId(ordinal)))
             {
-                required.add(clogItem.name);
+                required.add(dataset.getClogName(ordinal));
             }
             return required;
         }
 
-        // Check if it's a derived item
-        DerivedItem derived = derivedItemsById.get(itemId);
-        if (derived != null)
+        // Check if it's a derived item (an ID may be listed by more than one)
+        int[] derivedOwners = dataset.getDerivedOwners(itemId);
+        if (derivedOwners != null)
         {
-            List<List<Integer>> depSets = derived.getClogDependencies();
-            if (!depSets.isEmpty())
+            // Find the dep set with fewest missing items (closest to complete)
+            // Sets are flattened to minimal ones at build time, so there's no recipe chain to follow
+
+            List<String> bestMissing = null;
+            for (int index : derivedOwners)
             {
-                // Find the dep set with fewest missing items (closest to complete)
-                List<String> bestMissing = null;
-                for (List<Integer> depSet : depSets)
+                for (int[] depSet : dataset.getDerivedDependencies(index))
                 {
                     List<String> missing = new ArrayList<>();
-                    for (int depId : depSet)
+                    for (int depOrdinal : depSet)
                     {
-                        if (!isEffectivelyUnlocked(depId))
+                        if (!isEffectivelyUnlocked(dataset.getClogId(depOrdinal)))
                         {
-                            ClogItem clogItem = collectionLogItems.get(depId);
-                            if (clogItem != null)
-                            {
-                                missing.add(clogItem.name);
-                            }
+                            missing.add(dataset.getClogName(depOrdinal));
                         }
                     }
 
                     if (bestMissing == null || missing.size() < bestMissing.size())
                     {
                         bestMissing = missing;
-                        if (missing.isEmpty())
-                        {
-                            break;  // Found a complete set, no need to check others
-                        }
                     }
                 }
+            }
 
-                if (bestMissing != null)
-                {
-                    required.addAll(bestMissing);
-                }
+            if (bestMissing != null)
+            {
+                required.addAll(bestMissing);
             }
         }
 
@@ -1209,7 +1635,37 @@ public class ClogmanPlugin extends Plugin
             collectionLogOpen = true;
             log.debug("Collection log opened");
             // Scan collection log when it's opened
-            clientThread.invokeLater(this::scanCollectionLog);
+            collectionLogScanPending = true;
+        }
+        else if (event.getGroupId() == InterfaceID.INVENTORY || event.getGroupId() == InterfaceID.BANK)
+        {
+            refreshWidgetDimming();
+        }
+    }
+
+    @Subscribe
+    public void onItemContainerChanged(ItemContainerChanged event)
+    {
+        lockedSlotCache.update(event.getContainerId(), event.getItemContainer());
+
+        if (event.getContainerId() == InventoryID.INVENTORY.getId())
+        {
+            if (isItemTransferOpen())
+            {
+                unlockDetector.onTransferOpen(client.getTickCount());
+            }
+            unlockDetector.onInventoryChanged(event.getItemContainer(), client.getTickCount());
+        }
+        else if (event.getContainerId() == InventoryID.EQUIPMENT.getId())
+        {
+            unlockDetector.onEquipmentChanged(event.getItemContainer(), client.getTickCount());
+        }
+
+        // Inventory and bank item widgets are redrawn when their contents change
+        int containerId = event.getContainerId();
+        if (containerId == InventoryID.INVENTORY.getId() || containerId == InventoryID.BANK.getId())
+        {
+            refreshWidgetDimming();
         }
     }
 
@@ -1229,29 +1685,124 @@ public class ClogmanPlugin extends Plugin
         // Script 2731 is fired when collection log list is drawn (changing tabs/pages)
         if (event.getScriptId() == COLLECTION_LOG_DRAW_LIST_SCRIPT && collectionLogOpen)
         {
-            clientThread.invokeLater(this::scanCollectionLog);
+            collectionLogScanPending = true;
+        }
+
+        // The bank rebuilds its item widgets when opened, searched or retabbed (scrolling
+        // keeps them, so opacity survives it)
+        if (event.getScriptId() == ScriptID.BANKMAIN_FINISHBUILDING && widgetDimmer != null
+            && config.dimMode() == ClogmanConfig.DimMode.WIDGET_OPACITY)
+        {
+            widgetDimmer.apply();
+        }
+    }
+
+    /**
+     * Index of the in-game names of all clog item IDs, built from the item compositions
+     */
+    private NameIndex buildVariantNames()
+    {
+        long start = System.nanoTime();
+        NameIndex.Builder builder = new NameIndex.Builder();
+        for (int ordinal = 0; ordinal < dataset.getClogCount(); ordinal++)
+        {
+            for (int itemId : dataset.getClogVariantIds(ordinal))
+            {
+                String name = itemManager.getItemComposition(itemId).getName();
+                if (name != null && !name.equals("null"))
+                {
+                    builder.add(name, ordinal);
+                }
+            }
+        }
+        NameIndex index = builder.build();
+        log.debug("Built variant name index in {}ms", (System.nanoTime() - start) / 1_000_000);
+        return index;
+    }
+
+    /**
+     * Which of the clog items sharing a name was just added: the only one still locked, else
+     * one the detector matched to the log count going up, else one in the inventory, else the
+     * first still locked (the next collection log sync corrects a wrong guess). -1 if they're
+     * all unlocked already.
+     */
+    private int pickNewUnlock(int[] ordinals)
+    {
+        Set<Integer> unlocked = snapshot.getUnlocked();
+        ItemContainer inventory = client.getItemContainer(InventoryID.INVENTORY);
+        int first = -1;
+        int locked = 0;
+        for (int ordinal : ordinals)
+        {
+            if (unlocked.contains(dataset.getClogId(ordinal)))
+            {
+                continue;
+            }
+            if (first < 0)
+            {
+                first = ordinal;
+            }
+            locked++;
+        }
+
+        if (locked > 1)
+        {
+            for (int ordinal : ordinals)
+            {
+                int clogId = dataset.getClogId(ordinal);
+                if (!unlocked.contains(clogId) && unlockDetector.isTentative(clogId))
+                {
+                    return ordinal;
+                }
+            }
+        }
+
+        if (locked > 1 && inventory != null)
+        {
+            for (int ordinal : ordinals)
+            {
+                if (unlocked.contains(dataset.getClogId(ordinal)))
+                {
+                    continue;
+                }
+                for (int itemId : dataset.getClogVariantIds(ordinal))
+                {
+                    if (inventory.contains(itemId))
+                    {
+                        return ordinal;
+                    }
+                }
+            }
         }
+        return first;
     }
 
     @Subscribe
     public void onChatMessage(ChatMessage event)
     {
-        // Handle game messages for collection log unlocks
+        // Confirms the varp/inventory detection's tentative unlocks, or finds the item by name
         if (event.getType() == ChatMessageType.GAMEMESSAGE)
         {
             String message = event.getMessage();
-            // Check for collection log unlock message
-            if (message.contains("New item added to your collection log:"))
+            if (message.startsWith(NEW_CLOG_ITEM_MESSAGE))
             {
-                // Extract item name from message
-                int startIdx = message.indexOf(":") + 2;
-                String itemName = Text.removeTags(message.substring(startIdx)).trim();
+                String itemName = Text.removeTags(message.substring(NEW_CLOG_ITEM_MESSAGE.length())).trim();
 
-                // Find and unlock the item
-                Integer itemId = itemNameToId.get(itemName.toLowerCase());
-                if (itemId != null)
+                // Find and unlock the item (a no-op if it was already detected)
+                int[] ordinals = dataset.getOrdinalsByName(itemName);
+                if (ordinals.length == 0 && variantNames != null)
                 {
-                    unlockItem(itemId, false);
+                    ordinals = variantNames.lookup(itemName);
+                }
+
+                if (ordinals.length > 0)
+                {
+                    int ordinal = pickNewUnlock(ordinals);
+                    if (ordinal >= 0)
+                    {
+                        unlockDetector.resolve(dataset.getClogId(ordinal));
+                        unlockItem(dataset.getClogId(ordinal), false);
+                    }
                 }
                 else
                 {
@@ -1262,7 +1813,7 @@ public class ClogmanPlugin extends Plugin
         }
 
         // Handle chat messages to add icon to local player's messages
-        if (!config.showChatIcon() || chatIconOffset == -1)
+        if (!config.showChatIcon() || !chatIconPrefix.isLoaded())
         {
             return;
         }
@@ -1287,22 +1838,16 @@ public class ClogmanPlugin extends Plugin
             return;
         }
 
-        String messageName = Text.removeTags(event.getName());
-        if (!localPlayer.getName().equals(messageName))
-        {
-            return;
-        }
-
-        // Add icon to the message
+        // Don't add icon if name has tags (ironman icon, etc.), so it must match exactly
         String name = event.getName();
-        // Don't add icon if name already has tags (ironman icon, etc.)
-        if (!name.equals(Text.removeTags(name)))
+        if (!localPlayer.getName().equals(name))
         {
             return;
         }
 
+        // Add icon to the message
         final MessageNode messageNode = event.getMessageNode();
-        messageNode.setName("<img=" + chatIconOffset + ">" + name);
+        messageNode.setName(chatIconPrefix.prefixName(name));
     }
 
     /**
@@ -1311,6 +1856,12 @@ public class ClogmanPlugin extends Plugin
      */
     private void scanCollectionLog()
     {
+        // Rescanned once the restriction data is published
+        if (!dataReady)
+        {
+            return;
+        }
+
         // Use ComponentID.COLLECTION_LOG_ENTRY_ITEMS (40697893 = 621 << 16 | 37)
         Widget itemContainer = client.getWidget(ComponentID.COLLECTION_LOG_ENTRY_ITEMS);
         if (itemContainer == null)
@@ -1326,91 +1877,136 @@ public class ClogmanPlugin extends Plugin
             return;
         }
 
+        // Skip a page already synced in the same state
+        String page = getCollectionLogPageTitle();
+        long fingerprint = fingerprintCollectionLogPage(items);
+        if (page != null)
+        {
+            Long previous = scannedPages.put(page, fingerprint);
+            if (previous != null && previous == fingerprint)
+            {
+                log.debug("Collection log page {} unchanged, skipping scan", page);
+                return;
+            }
+        }
+
         int newUnlocks = 0;
         int manualTrackingChanges = 0;
         int scannedItems = 0;
 
-        for (Widget item : items)
+        // All changes from this page are saved and recomputed together
+        beginTransaction();
+        try
         {
-            int itemId = item.getItemId();
-            if (itemId <= 0)
+            for (Widget item : items)
             {
-                continue;
-            }
+                int itemId = item.getItemId();
+                if (itemId <= 0)
+                {
+                    continue;
+                }
 
-            scannedItems++;
+                scannedItems++;
 
-            // Items with opacity 0 are obtained, greyed out items have higher opacity
-            boolean isObtained = item.getOpacity() == 0;
+                // Items with opacity 0 are obtained, greyed out items have higher opacity
+                boolean isObtained = item.getOpacity() == 0;
 
-            if (isObtained && collectionLogItems.containsKey(itemId))
-            {
-                // Respect manual removals - don't auto-add if user has locked this item
-                if (!manuallyRemoved.contains(itemId))
+                int ordinal = dataset.getOrdinal(itemId);
+                unlockDetector.resolve(itemId);
+                if (isObtained && ordinal >= 0)
                 {
-                    if (unlockedClogItems.add(itemId))
+                    // Respect manual removals - don't auto-add if user has locked this item
+                    if (!manuallyRemoved.contains(itemId))
                     {
-                        ClogItem clogItem = collectionLogItems.get(itemId);
-                        log.debug("Found obtained item: {} (ID: {})", clogItem.name, itemId);
-                        newUnlocks++;
-                    }
+                        if (setUnlocked(itemId, true))
+                        {
+                            log.debug("Found obtained item: {} (ID: {})", dataset.getClogName(ordinal), itemId);
+                            newUnlocks++;
+                        }
 
-                    // If this was manually added before, it's now a real unlock
-                    if (manuallyAdded.remove(itemId))
-                    {
-                        manualTrackingChanges++;
+                        // If this was manually added before, it's now a real unlock
+                        if (manuallyAdded.remove(itemId))
+                        {
+                            transactionDirty = true;
+                            manualTrackingChanges++;
+                        }
                     }
                 }
-            }
-            else if (!isObtained && collectionLogItems.containsKey(itemId))
-            {
-                ClogItem clogItem = collectionLogItems.get(itemId);
-
-                // Skip migration for clue items when clue restrictions are disabled
-                // They're effectively unrestricted, so shouldn't be tracked as manual unlocks
-                if (!config.restrictClueItems() && isClueItem(clogItem))
+                else if (!isObtained && ordinal >= 0)
                 {
-                    continue;
-                }
+                    // Skip migration for clue items when clue restrictions are disabled
+                    // They're effectively unrestricted, so shouldn't be tracked as manual unlocks
+                    if (!config.restrictClueItems() && dataset.isClueItem(ordinal))
+                    {
+                        continue;
+                    }
 
-                // Migration: If item is unlocked but not obtained, it must be a manual addition
-                // This handles upgrading from pre-manual-tracking versions
-                if (unlockedClogItems.contains(itemId) && !manuallyAdded.contains(itemId))
-                {
-                    manuallyAdded.add(itemId);
-                    log.debug("Migrated to manual unlock: {} (ID: {})", clogItem.name, itemId);
-                    manualTrackingChanges++;
+                    // Migration: If item is unlocked but not obtained, it must be a manual addition
+                    // This handles upgrading from pre-manual-tracking versions
+                    if (unlockedClogItems.contains(itemId) && !manuallyAdded.contains(itemId))
+                    {
+                        manuallyAdded.add(itemId);
+                        transactionDirty = true;
+                        log.debug("Migrated to manual unlock: {} (ID: {})", dataset.getClogName(ordinal), itemId);
+                        manualTrackingChanges++;
+                    }
                 }
             }
         }
+        finally
+        {
+            commitTransaction();
+        }
 
         log.debug("Scanned {} items, found {} new unlocks, {} manual tracking changes", scannedItems, newUnlocks, manualTrackingChanges);
 
-        if (newUnlocks > 0 || manualTrackingChanges > 0)
+        if (newUnlocks > 0)
         {
-            if (newUnlocks > 0)
-            {
-                log.info("Scanned collection log page, found {} new unlocks (total: {})", newUnlocks, unlockedClogItems.size());
-            }
-
-            if (manualTrackingChanges > 0)
-            {
-                log.debug("Updated manual unlock tracking for {} items", manualTrackingChanges);
-            }
+            log.info("Scanned collection log page, found {} new unlocks (total: {})", newUnlocks, unlockedClogItems.size());
+            sendSyncMessage(newUnlocks);
+        }
 
-            saveUnlockedItems();
-            recalculateAvailableItems();
+        if (manualTrackingChanges > 0)
+        {
+            log.debug("Updated manual unlock tracking for {} items", manualTrackingChanges);
+        }
+    }
 
-            if (newUnlocks > 0)
-            {
-                sendSyncMessage(newUnlocks);
-            }
+    /**
+     * Title of the open collection log page (e.g. "Zulrah"), or null
+     */
+    private String getCollectionLogPageTitle()
+    {
+        Widget header = client.getWidget(ComponentID.COLLECTION_LOG_ENTRY_HEADER);
+        Widget[] lines = header != null ? header.getDynamicChildren() : null;
+        if (lines == null || lines.length == 0 || lines[0].getText() == null)
+        {
+            return null;
+        }
+        return Text.removeTags(lines[0].getText());
+    }
 
-            if (panel != null)
-            {
-                panel.refresh();
-            }
+    /**
+     * Hash of the (item ID, obtained) state of every slot on a collection log page
+     */
+    private static long fingerprintCollectionLogPage(Widget[] items)
+    {
+        long hash = items.length;
+        for (Widget item : items)
+        {
+            long slot = (long) item.getItemId() << 1 | (item.getOpacity() == 0 ? 1 : 0);
+            hash = (hash ^ slot) * 0x100000001B3L;
         }
+        return hash;
+    }
+
+    /**
+     * Forgets which collection log pages were synced, so they're scanned again when next shown.
+     * Needed whenever the unlocks change other than through a scan.
+     */
+    private void forgetScannedPages()
+    {
+        scannedPages.clear();
     }
 
     private void sendSyncMessage(int count)
@@ -1419,7 +2015,8 @@ public class ClogmanPlugin extends Plugin
             .append(ChatColorType.HIGHLIGHT)
             .append("Clogman: ")
             .append(ChatColorType.NORMAL)
-            .append("Synced " + count + " items from collection log. Browse all tabs to sync everything!")
+            .append("Synced " + count + " items from collection log (" + scannedPages.size()
+                + " pages checked this session). Browse all tabs to sync everything!")
             .build();
 
         chatMessageManager.queue(QueuedMessage.builder()
@@ -1433,85 +2030,39 @@ public class ClogmanPlugin extends Plugin
      */
     public int getUnlockedCount()
     {
-        return unlockedClogItems.size();
+        return snapshot.getUnlocked().size();
     }
 
     /**
-     * Returns a copy of the unlocked collection log item IDs.
-     * Returns a defensive copy to prevent ConcurrentModificationException
-     * when iterating from EDT while client thread modifies the set.
+     * Returns the unlocked collection log item IDs from the current snapshot.
+     * Immutable, so safe to iterate from the EDT while the client thread makes changes.
      */
     public Set<Integer> getUnlockedClogItems()
     {
-        return new HashSet<>(unlockedClogItems);
+        return snapshot.getUnlocked();
     }
 
     /**
-     * Returns the total number of collection log items
+     * Returns the manually added unlocks from the current snapshot (immutable)
      */
-    public int getTotalClogItems()
+    public Set<Integer> getManuallyAdded()
     {
-        return collectionLogItems.size();
+        return snapshot.getManuallyAdded();
     }
 
-    // === DATA CLASSES ===
-
-    public static class RestrictionData
-    {
-        public Map<Integer, ClogItem> collectionLogItems;
-        public Map<String, DerivedItem> derivedItems;
-    }
-
-    public static class ClogItem
+    /**
+     * Returns the manually locked items from the current snapshot (immutable)
+     */
+    public Set<Integer> getManuallyRemoved()
     {
-        public String name;
-        public List<String> tabs;
-        @SerializedName("all_ids")
-        public List<Integer> allIds;  // All variant IDs for this clog item (e.g., new/used states)
-        @SerializedName("craftable_from")
-        public List<List<Integer>> craftableFrom;  // Optional: recipes to craft this from other clog items
-
-        /**
-         * Get all valid item IDs for this clog item.
-         */
-        public List<Integer> getAllIds()
-        {
-            return allIds != null ? allIds : java.util.Collections.emptyList();
-        }
-
-        /**
-         * Get crafting recipes from other clog items (if any).
-         * Outer list: OR (any recipe works), Inner list: AND (all deps needed)
-         */
-        public List<List<Integer>> getCraftableFrom()
-        {
-            return craftableFrom != null ? craftableFrom : java.util.Collections.emptyList();
-        }
+        return snapshot.getManuallyRemoved();
     }
 
-    public static class DerivedItem
+    /**
+     * Returns the total number of collection log items
+     */
+    public int getTotalClogItems()
     {
-        public String name;
-        @SerializedName("item_ids")
-        public List<Integer> itemIds;  // All valid item IDs for this derived item
-        @SerializedName("clog_dependencies")
-        public List<List<Integer>> clogDependencies;  // Outer list: OR, Inner list: AND)
-
-        /**
-         * Get all valid item IDs for this derived item.
-         */
-        public List<Integer> getAllItemIds()
-        {
-            return itemIds != null ? itemIds : java.util.Collections.emptyList();
-        }
-
-        /**
-         * Get clog dependency sets
-         * Returns empty list if no dependencies.
-         */
-        public List<List<Integer>> getClogDependencies()
-        {
-            return clogDependencies != null ? clogDependencies : java.util.Collections.emptyList();
-        }
+        return dataset.getClogCount();
     }
 }
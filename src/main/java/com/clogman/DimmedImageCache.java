@@ -0,0 +1,217 @@
+package com.clogman;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.game.ItemManager;
+import net.runelite.client.util.AsyncBufferedImage;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Greyscale, darkened item sprites for the overlay, built once per (item ID, quantity
+ * bucket, opacity) and kept in a size-bounded LRU cache.
+ *
+ * In front of the LRU each container slot remembers the sprite it last drew, so redrawing
+ * an unchanged slot every frame neither boxes a key nor takes the lock. Sprites load
+ * asynchronously, so a miss returns null until the tinted image is ready and the overlay
+ * falls back to a plain fill meanwhile. Thread-safe: the overlay reads it on the client
+ * thread, config changes clear it from wherever they're posted.
+ */
+@Slf4j
+final class DimmedImageCache
+{
+    private static final int MAX_ENTRIES = 512;
+
+    // Containers with a slot cache, see get()
+    static final int INVENTORY = 0;
+    static final int BANK = 1;
+
+    // Stats are logged every this many misses
+    private static final int STATS_INTERVAL = 1024;
+
+    // Stack sizes at which item sprites commonly change (coins, arrows, runes...)
+    private static final int[] QUANTITY_BUCKETS = {1, 2, 3, 4, 5, 10, 25, 100, 250, 1000, 10000};
+
+    private final ItemManager itemManager;
+
+    // Access-ordered, so the eldest entry is the least recently used
+    private final Map<Long, BufferedImage> images = new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest)
+        {
+            if (size() > MAX_ENTRIES)
+            {
+                evictions++;
+                return true;
+            }
+            return false;
+        }
+    };
+
+    // Keys whose sprite is still loading (only touched on a miss)
+    private final Set<Long> pending = new HashSet<>();
+
+    // Bumped by clear() so sprites requested before it are discarded when they arrive
+    private int generation;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    // Client thread only, replaced by clear() so a clear from another thread never races a draw
+    private volatile SlotImages slotImages = new SlotImages();
+
+    /**
+     * Sprite and LRU key last resolved for each slot, by container
+     */
+    private static final class SlotImages
+    {
+        private final long[][] keys = {new long[0], new long[0]};
+        private final BufferedImage[][] images = {new BufferedImage[0], new BufferedImage[0]};
+        // Only read for logging
+        private long hits;
+    }
+
+    DimmedImageCache(ItemManager itemManager)
+    {
+        this.itemManager = itemManager;
+    }
+
+    /**
+     * The greyscale sprite of the item stack in a container slot, darkened to the given
+     * opacity (0 = black, 255 = full brightness), or null if it isn't ready yet. Client
+     * thread only.
+     *
+     * @param container {@link #INVENTORY} or {@link #BANK}
+     */
+    BufferedImage get(int container, int slot, int itemId, int quantity, int opacity)
+    {
+        int bucket = bucket(quantity);
+        long key = (long) itemId << 32 | (long) bucket << 8 | opacity;
+
+        SlotImages slots = slotImages;
+        long[] keys = slots.keys[container];
+        if (slot >= 0 && slot < keys.length && keys[slot] == key && slots.images[container][slot] != null)
+        {
+            slots.hits++;
+            return slots.images[container][slot];
+        }
+
+        BufferedImage image = get(itemId, bucket, opacity, key);
+        if (image != null && slot >= 0)
+        {
+            if (slot >= keys.length)
+            {
+                int size = Math.max(slot + 1, keys.length * 2);
+                keys = slots.keys[container] = Arrays.copyOf(keys, size);
+                slots.images[container] = Arrays.copyOf(slots.images[container], size);
+            }
+            keys[slot] = key;
+            slots.images[container][slot] = image;
+        }
+        return image;
+    }
+
+    private BufferedImage get(int itemId, int bucket, int opacity, long key)
+    {
+        int requested;
+        synchronized (this)
+        {
+            BufferedImage image = images.get(key);
+            if (image != null)
+            {
+                hits++;
+                return image;
+            }
+            if (!pending.add(key))
+            {
+                return null;
+            }
+            misses++;
+            if (misses % STATS_INTERVAL == 0)
+            {
+                logStats("Dimmed image cache");
+            }
+            requested = generation;
+        }
+
+        // Runs straight away if the sprite is already loaded
+        AsyncBufferedImage source = itemManager.getImage(itemId, bucket, false);
+        source.onLoaded(() -> store(key, requested, tint(source, opacity)));
+
+        synchronized (this)
+        {
+            return images.get(key);
+        }
+    }
+
+    /**
+     * Drops every cached sprite, e.g. after the opacity or dim mode changed
+     */
+    synchronized void clear()
+    {
+        if (hits + misses > 0)
+        {
+            logStats("Dimmed image cache cleared");
+        }
+        slotImages = new SlotImages();
+        images.clear();
+        pending.clear();
+        generation++;
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    private void logStats(String event)
+    {
+        log.debug("{}: {} images, {} slot hits, {} hits, {} misses, {} evictions",
+            event, images.size(), slotImages.hits, hits, misses, evictions);
+    }
+
+    private synchronized void store(long key, int requested, BufferedImage image)
+    {
+        if (requested != generation || !pending.remove(key))
+        {
+            return;
+        }
+        images.put(key, image);
+    }
+
+    private static int bucket(int quantity)
+    {
+        int bucket = 1;
+        for (int threshold : QUANTITY_BUCKETS)
+        {
+            if (quantity < threshold)
+            {
+                break;
+            }
+            bucket = threshold;
+        }
+        return bucket;
+    }
+
+    private static BufferedImage tint(BufferedImage source, int opacity)
+    {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                int argb = source.getRGB(x, y);
+                int luminance = (((argb >> 16) & 0xFF) * 77 + ((argb >> 8) & 0xFF) * 150 + (argb & 0xFF) * 29) >> 8;
+                int grey = luminance * opacity / 255;
+                image.setRGB(x, y, (argb & 0xFF000000) | grey << 16 | grey << 8 | grey);
+            }
+        }
+        return image;
+    }
+}
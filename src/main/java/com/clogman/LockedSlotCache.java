@@ -0,0 +1,170 @@
+package com.clogman;
+
+import net.runelite.api.Client;
+import net.runelite.api.InventoryID;
+import net.runelite.api.Item;
+import net.runelite.api.ItemContainer;
+
+import java.util.Arrays;
+
+/**
+ * Which slots of the tracked item containers hold locked items.
+ *
+ * Each container keeps the item IDs it was last seen with and a bitset of locked slots.
+ * ItemContainerChanged only rechecks slots whose item changed, and a container is fully
+ * rechecked the first time it's read after the snapshot's availability epoch moves on.
+ * Client thread only.
+ */
+final class LockedSlotCache
+{
+    // Containers the overlay and widget dimmer draw, add more once something reads them
+    private static final int[] TRACKED_CONTAINERS = {
+        InventoryID.INVENTORY.getId(), InventoryID.BANK.getId()
+    };
+
+    private static final class Slots
+    {
+        private int[] itemIds = new int[0];
+        private long[] locked = new long[0];
+        private long epoch = -1;
+        private boolean loaded;
+    }
+
+    private final Client client;
+    private final ClogmanPlugin plugin;
+    private final Slots[] slots = new Slots[TRACKED_CONTAINERS.length];
+
+    LockedSlotCache(Client client, ClogmanPlugin plugin)
+    {
+        this.client = client;
+        this.plugin = plugin;
+        clear();
+    }
+
+    /**
+     * Forgets every container, they're reloaded from the client when next read
+     */
+    void clear()
+    {
+        for (int i = 0; i < slots.length; i++)
+        {
+            slots[i] = new Slots();
+        }
+    }
+
+    /**
+     * Updates a container from an ItemContainerChanged event, rechecking only changed slots
+     */
+    void update(int containerId, ItemContainer container)
+    {
+        int index = indexOf(containerId);
+        if (index >= 0)
+        {
+            Slots s = slots[index];
+            UnlockSnapshot snapshot = plugin.getSnapshot();
+            load(s, container, s.epoch == snapshot.getAvailabilityEpoch());
+            s.epoch = snapshot.getAvailabilityEpoch();
+        }
+    }
+
+    /**
+     * Whether the given slot of a container holds a locked item. Falls back to a direct
+     * lookup for untracked containers or if the slot doesn't hold the expected item.
+     */
+    boolean isLocked(int containerId, int slot, int itemId)
+    {
+        Slots s = current(containerId);
+        if (s == null || slot < 0 || slot >= s.itemIds.length || s.itemIds[slot] != itemId)
+        {
+            return plugin.isItemLocked(itemId);
+        }
+        return Bits.get(s.locked, slot);
+    }
+
+    /**
+     * A tracked container brought up to date with the current snapshot, or null
+     */
+    private Slots current(int containerId)
+    {
+        int index = indexOf(containerId);
+        if (index < 0)
+        {
+            return null;
+        }
+
+        // Until the data is ready availability depends on the config, not the snapshot
+        UnlockSnapshot snapshot = plugin.getSnapshot();
+        if (!snapshot.isReady())
+        {
+            return null;
+        }
+
+        Slots s = slots[index];
+        if (!s.loaded)
+        {
+            ItemContainer container = client.getItemContainer(containerId);
+            load(s, container, false);
+            s.epoch = snapshot.getAvailabilityEpoch();
+        }
+        else if (s.epoch != snapshot.getAvailabilityEpoch())
+        {
+            for (int slot = 0; slot < s.itemIds.length; slot++)
+            {
+                setLocked(s, slot);
+            }
+            s.epoch = snapshot.getAvailabilityEpoch();
+        }
+        return s;
+    }
+
+    private void load(Slots s, ItemContainer container, boolean incremental)
+    {
+        Item[] items = container != null ? container.getItems() : new Item[0];
+        if (items.length != s.itemIds.length)
+        {
+            s.itemIds = Arrays.copyOf(s.itemIds, items.length);
+            s.locked = Arrays.copyOf(s.locked, (items.length + 63) >>> 6);
+            if (items.length % 64 != 0 && s.locked.length > 0)
+            {
+                // Drop bits for slots past the new end
+                s.locked[s.locked.length - 1] &= (1L << items.length) - 1;
+            }
+        }
+
+        for (int slot = 0; slot < items.length; slot++)
+        {
+            int itemId = items[slot].getId();
+            if (!incremental || !s.loaded || s.itemIds[slot] != itemId)
+            {
+                s.itemIds[slot] = itemId;
+                setLocked(s, slot);
+            }
+        }
+        s.loaded = container != null;
+    }
+
+    private void setLocked(Slots s, int slot)
+    {
+        int itemId = s.itemIds[slot];
+        if (itemId > 0 && plugin.isItemLocked(itemId))
+        {
+            Bits.set(s.locked, slot);
+        }
+        else
+        {
+            Bits.clear(s.locked, slot);
+        }
+    }
+
+    private static int indexOf(int containerId)
+    {
+        for (int i = 0; i < TRACKED_CONTAINERS.length; i++)
+        {
+            if (TRACKED_CONTAINERS[i] == containerId)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,143 @@
+package com.clogman;
+
+import net.runelite.client.util.ColorUtil;
+import net.runelite.client.util.Text;
+
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Classifies raw menu option strings (tags and all) and remembers the result, so the
+ * menu hooks only strip tags and lowercase an option the first time they see it.
+ * Client thread only.
+ */
+final class MenuOptions
+{
+    enum Kind
+    {
+        // Using a locked item this way is blocked
+        RESTRICTED,
+        // Bank withdraw options
+        WITHDRAW,
+        // Shop purchase options
+        BUY,
+        // Picking up ground items
+        TAKE,
+        // Deposit box options
+        DEPOSIT,
+        // Offering an item in a trade
+        OFFER,
+        // Confirming a Grand Exchange offer
+        CONFIRM,
+        OTHER
+    }
+
+    // Actions that should be restricted for locked items
+    private static final Set<String> RESTRICTED_ACTIONS = Set.of(
+        "wear", "wield", "equip", "eat", "drink", "use",
+        "read", "open", "rub", "break", "activate", "commune"
+    );
+
+    // Options are a small fixed vocabulary, this only guards against unbounded growth
+    static final int MAX_CACHED = 1024;
+
+    static final class Entry
+    {
+        private final Kind kind;
+        private String grayed;
+
+        private Entry(Kind kind)
+        {
+            this.kind = kind;
+        }
+    }
+
+    private final Map<String, Entry> cache = new HashMap<>();
+
+    /**
+     * Kind of a raw menu option, e.g. "<col=ff9040>Wield" is {@link Kind#RESTRICTED}
+     */
+    Kind classify(String option)
+    {
+        return option == null ? Kind.OTHER : entry(option).kind;
+    }
+
+    /**
+     * The option prefixed with a gray color tag, as shown for locked items. Graying an option
+     * this returned gives back the same string.
+     */
+    String gray(String option)
+    {
+        Entry entry = entry(option);
+        if (entry.grayed == null)
+        {
+            entry.grayed = ColorUtil.prependColorTag(option, Color.GRAY);
+            // The gray option shares the entry, so it classifies the same and is its own gray
+            put(entry.grayed, entry);
+        }
+        return entry.grayed;
+    }
+
+    /**
+     * Cached classification of a raw option, created on first sight
+     */
+    Entry entry(String option)
+    {
+        Entry entry = cache.get(option);
+        if (entry == null)
+        {
+            entry = new Entry(kindOf(Text.removeTags(option).toLowerCase()));
+            put(option, entry);
+        }
+        return entry;
+    }
+
+    int cachedCount()
+    {
+        return cache.size();
+    }
+
+    private void put(String option, Entry entry)
+    {
+        if (cache.size() >= MAX_CACHED)
+        {
+            cache.clear();
+        }
+        cache.put(option, entry);
+    }
+
+    private static Kind kindOf(String option)
+    {
+        if (RESTRICTED_ACTIONS.contains(option))
+        {
+            return Kind.RESTRICTED;
+        }
+        if (option.startsWith("withdraw"))
+        {
+            return Kind.WITHDRAW;
+        }
+        if (option.startsWith("buy"))
+        {
+            return Kind.BUY;
+        }
+        if (option.equals("take"))
+        {
+            return Kind.TAKE;
+        }
+        if (option.startsWith("deposit"))
+        {
+            return Kind.DEPOSIT;
+        }
+        if (option.startsWith("offer"))
+        {
+            return Kind.OFFER;
+        }
+        if (option.equals("confirm"))
+        {
+            return Kind.CONFIRM;
+        }
+        return Kind.OTHER;
+    }
+}
@@ -0,0 +1,428 @@
+package com.clogman;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Trie from normalized item names to clog ordinals, used to match chat messages and to
+ * search the panel.
+ *
+ * Names are compared in a canonical form: letters and digits lowercased, apostrophes
+ * dropped and any other run of punctuation or whitespace treated as a single separator,
+ * so "Ahrim's hood", "ahrims hood" and "Ahrim's  hood." are the same key. Each key can
+ * map to several ordinals, as many clog items share a name. A name ending in a
+ * parenthesised suffix ("(t)", "(uncharged)") is also reachable without it, and lookups
+ * fall back to ignoring such a suffix on the query.
+ *
+ * Nodes are numbered in preorder, so the keys below a node are a contiguous range of
+ * nodes and values. Lookups canonicalize character by character while walking the trie
+ * and never build strings.
+ */
+final class NameIndex
+{
+    private static final int NAME = 0;
+    private static final int ALIAS = 1;
+    private static final int WORD = 2;
+    private static final int KINDS = 3;
+
+    private static final char SEPARATOR = ' ';
+    private static final char SKIP = 0;
+
+    private static final int[] NONE = new int[0];
+
+    // Node 0 is the root. Children of a node are a sibling chain in ascending char order.
+    private final char[] nodeChar;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] subtreeEnd;
+
+    // Ordinals by kind: full names, names without their suffix, and names from each word
+    // on (for search). Values of node n are values[kind][start[kind][n] .. start[kind][n + 1])
+    private final int[][] start;
+    private final int[][] values;
+
+    private NameIndex(char[] nodeChar, int[] firstChild, int[] nextSibling, int[] subtreeEnd, int[][] start, int[][] values)
+    {
+        this.nodeChar = nodeChar;
+        this.firstChild = firstChild;
+        this.nextSibling = nextSibling;
+        this.subtreeEnd = subtreeEnd;
+        this.start = start;
+        this.values = values;
+    }
+
+    /**
+     * Index of the given names, where names[i] belongs to ordinal i
+     */
+    static NameIndex of(String[] names)
+    {
+        Builder builder = new Builder();
+        for (int ordinal = 0; ordinal < names.length; ordinal++)
+        {
+            builder.add(names[ordinal], ordinal);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Ordinals of the items called the given name. Exact names win over names that only match
+     * without their suffix. Returns an empty array if nothing matches.
+     */
+    int[] lookup(CharSequence name)
+    {
+        int node = 0;
+        boolean started = false;
+        boolean separator = false;
+
+        // Node reached before a "(" and whether the text since is a closed, trailing suffix
+        int suffixNode = -1;
+        boolean inSuffix = false;
+        boolean suffixClosed = false;
+
+        for (int i = 0; i < name.length(); i++)
+        {
+            char raw = name.charAt(i);
+            char c = canonical(raw);
+            if (raw == '(' && !inSuffix)
+            {
+                suffixNode = node;
+                inSuffix = true;
+            }
+            else if (raw == ')' && inSuffix)
+            {
+                suffixClosed = true;
+            }
+            else if (suffixClosed && c != SEPARATOR && c != SKIP)
+            {
+                // Text after the parentheses, so they weren't a suffix
+                suffixNode = -1;
+                inSuffix = false;
+                suffixClosed = false;
+            }
+
+            if (c == SKIP)
+            {
+                continue;
+            }
+            if (c == SEPARATOR)
+            {
+                separator = started;
+                continue;
+            }
+            if (separator)
+            {
+                node = child(node, SEPARATOR);
+                separator = false;
+            }
+            node = child(node, c);
+            started = true;
+        }
+
+        if (node >= 0)
+        {
+            if (count(NAME, node) > 0)
+            {
+                return values(NAME, node);
+            }
+            if (count(ALIAS, node) > 0)
+            {
+                return values(ALIAS, node);
+            }
+        }
+        if (suffixNode > 0 && suffixClosed && count(NAME, suffixNode) > 0)
+        {
+            return values(NAME, suffixNode);
+        }
+        return NONE;
+    }
+
+    /**
+     * Ordinals (below size) of the names with a word starting with the query, as a bitset.
+     * An empty query matches everything.
+     */
+    long[] search(CharSequence query, int size)
+    {
+        long[] matches = Bits.create(size);
+        int node = 0;
+        boolean started = false;
+        boolean separator = false;
+        for (int i = 0; i < query.length() && node >= 0; i++)
+        {
+            char c = canonical(query.charAt(i));
+            if (c == SKIP)
+            {
+                continue;
+            }
+            if (c == SEPARATOR)
+            {
+                separator = started;
+                continue;
+            }
+            if (separator)
+            {
+                node = child(node, SEPARATOR);
+                separator = false;
+                if (node < 0)
+                {
+                    break;
+                }
+            }
+            node = child(node, c);
+            started = true;
+        }
+
+        if (node >= 0)
+        {
+            int[] words = values[WORD];
+            for (int i = start[WORD][node]; i < start[WORD][subtreeEnd[node]]; i++)
+            {
+                if (words[i] < size)
+                {
+                    Bits.set(matches, words[i]);
+                }
+            }
+        }
+        return matches;
+    }
+
+    private int child(int node, char c)
+    {
+        if (node < 0)
+        {
+            return -1;
+        }
+        for (int k = firstChild[node]; k >= 0 && nodeChar[k] <= c; k = nextSibling[k])
+        {
+            if (nodeChar[k] == c)
+            {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    private int count(int kind, int node)
+    {
+        return start[kind][node + 1] - start[kind][node];
+    }
+
+    private int[] values(int kind, int node)
+    {
+        return Arrays.copyOfRange(values[kind], start[kind][node], start[kind][node + 1]);
+    }
+
+    private static char canonical(char c)
+    {
+        if (Character.isLetterOrDigit(c))
+        {
+            return Character.toLowerCase(c);
+        }
+        if (c == '\'' || c == '\u2019')
+        {
+            return SKIP;
+        }
+        return SEPARATOR;
+    }
+
+    /**
+     * Canonical form of a whole name, only used while building
+     */
+    private static String canonical(String name)
+    {
+        StringBuilder key = new StringBuilder(name.length());
+        boolean separator = false;
+        for (int i = 0; i < name.length(); i++)
+        {
+            char c = canonical(name.charAt(i));
+            if (c == SKIP)
+            {
+                continue;
+            }
+            if (c == SEPARATOR)
+            {
+                separator = key.length() > 0;
+                continue;
+            }
+            if (separator)
+            {
+                key.append(SEPARATOR);
+                separator = false;
+            }
+            key.append(c);
+        }
+        return key.toString();
+    }
+
+    static final class Builder
+    {
+        private static final class Key implements Comparable<Key>
+        {
+            private final String key;
+            private final int kind;
+            private final int ordinal;
+
+            private Key(String key, int kind, int ordinal)
+            {
+                this.key = key;
+                this.kind = kind;
+                this.ordinal = ordinal;
+            }
+
+            @Override
+            public int compareTo(Key other)
+            {
+                int cmp = key.compareTo(other.key);
+                if (cmp == 0)
+                {
+                    cmp = Integer.compare(kind, other.kind);
+                }
+                return cmp != 0 ? cmp : Integer.compare(ordinal, other.ordinal);
+            }
+        }
+
+        private final List<Key> keys = new ArrayList<>();
+
+        /**
+         * Adds a name for an ordinal, along with its suffix-less alias and word keys
+         */
+        Builder add(String name, int ordinal)
+        {
+            String key = canonical(name);
+            if (key.isEmpty())
+            {
+                return this;
+            }
+            keys.add(new Key(key, NAME, ordinal));
+
+            int suffix = name.lastIndexOf('(');
+            if (suffix > 0 && name.trim().endsWith(")"))
+            {
+                String alias = canonical(name.substring(0, suffix));
+                if (!alias.isEmpty() && !alias.equals(key))
+                {
+                    keys.add(new Key(alias, ALIAS, ordinal));
+                }
+            }
+
+            for (int i = 0; i < key.length(); i++)
+            {
+                if (i == 0 || key.charAt(i - 1) == SEPARATOR)
+                {
+                    keys.add(new Key(key.substring(i), WORD, ordinal));
+                }
+            }
+            return this;
+        }
+
+        NameIndex build()
+        {
+            keys.sort(null);
+
+            int capacity = 16;
+            char[] nodeChar = new char[capacity];
+            int[] firstChild = new int[capacity];
+            int[] nextSibling = new int[capacity];
+            int[] lastChild = new int[capacity];
+            int[][] counts = new int[KINDS][capacity];
+            int[][] values = new int[KINDS][keys.size()];
+            int[] valueCount = new int[KINDS];
+
+            // Root
+            int nodeCount = 1;
+            firstChild[0] = -1;
+            nextSibling[0] = -1;
+            lastChild[0] = -1;
+
+            // Nodes along the previous key, by depth
+            int[] path = new int[1];
+            String previous = "";
+            int lastNode = -1;
+            int lastKind = -1;
+            int lastOrdinal = -1;
+
+            for (Key entry : keys)
+            {
+                String key = entry.key;
+                int common = 0;
+                int max = Math.min(previous.length(), key.length());
+                while (common < max && previous.charAt(common) == key.charAt(common))
+                {
+                    common++;
+                }
+
+                if (path.length < key.length() + 1)
+                {
+                    path = Arrays.copyOf(path, key.length() + 1);
+                }
+
+                // Keys are sorted, so new nodes are always appended as the last child
+                int node = path[common];
+                for (int depth = common; depth < key.length(); depth++)
+                {
+                    if (nodeCount == capacity)
+                    {
+                        capacity *= 2;
+                        nodeChar = Arrays.copyOf(nodeChar, capacity);
+                        firstChild = Arrays.copyOf(firstChild, capacity);
+                        nextSibling = Arrays.copyOf(nextSibling, capacity);
+                        lastChild = Arrays.copyOf(lastChild, capacity);
+                        for (int kind = 0; kind < KINDS; kind++)
+                        {
+                            counts[kind] = Arrays.copyOf(counts[kind], capacity);
+                        }
+                    }
+
+                    int child = nodeCount++;
+                    nodeChar[child] = key.charAt(depth);
+                    firstChild[child] = -1;
+                    nextSibling[child] = -1;
+                    lastChild[child] = -1;
+                    if (lastChild[node] < 0)
+                    {
+                        firstChild[node] = child;
+                    }
+                    else
+                    {
+                        nextSibling[lastChild[node]] = child;
+                    }
+                    lastChild[node] = child;
+                    path[depth + 1] = child;
+                    node = child;
+                }
+                previous = key;
+
+                // Nodes are reached in preorder, so values end up grouped by node
+                if (node != lastNode || entry.kind != lastKind || entry.ordinal != lastOrdinal)
+                {
+                    values[entry.kind][valueCount[entry.kind]++] = entry.ordinal;
+                    counts[entry.kind][node]++;
+                    lastNode = node;
+                    lastKind = entry.kind;
+                    lastOrdinal = entry.ordinal;
+                }
+            }
+
+            int[] subtreeEnd = new int[nodeCount];
+            for (int node = nodeCount - 1; node >= 0; node--)
+            {
+                int last = lastChild[node];
+                subtreeEnd[node] = last >= 0 ? subtreeEnd[last] : node + 1;
+            }
+
+            int[][] start = new int[KINDS][nodeCount + 1];
+            for (int kind = 0; kind < KINDS; kind++)
+            {
+                for (int node = 0; node < nodeCount; node++)
+                {
+                    start[kind][node + 1] = start[kind][node] + counts[kind][node];
+                }
+                values[kind] = Arrays.copyOf(values[kind], valueCount[kind]);
+            }
+
+            return new NameIndex(
+                Arrays.copyOf(nodeChar, nodeCount), Arrays.copyOf(firstChild, nodeCount),
+                Arrays.copyOf(nextSibling, nodeCount), subtreeEnd, start, values);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.clogman;
+
+import net.runelite.api.MenuAction;
+import net.runelite.api.widgets.InterfaceID;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps a menu action type and widget group to the restriction that applies to it.
+ *
+ * Built from the config (see {@link #build(ClogmanConfig)}) and replaced whole when it
+ * changes. A lookup is an array index on the action plus a scan of the few rules
+ * registered for it. Item ops share action types (Wield and Drop are both CC_OP), so
+ * each rule also names the kind of option it covers.
+ */
+final class RestrictionTable
+{
+    enum Policy
+    {
+        USE("use", MenuOptions.Kind.RESTRICTED),
+        WITHDRAW("withdraw", MenuOptions.Kind.WITHDRAW),
+        BUY("buy", MenuOptions.Kind.BUY),
+        TAKE("take", MenuOptions.Kind.TAKE),
+        DEPOSIT("deposit", MenuOptions.Kind.DEPOSIT),
+        OFFER("trade", MenuOptions.Kind.OFFER),
+        // The item is the one being set up in the offer, not the menu entry's
+        GE_OFFER("buy", MenuOptions.Kind.CONFIRM);
+
+        // Verb used in the "Cannot ..." chat message
+        final String verb;
+        final MenuOptions.Kind kind;
+
+        Policy(String verb, MenuOptions.Kind kind)
+        {
+            this.verb = verb;
+            this.kind = kind;
+        }
+    }
+
+    // Widget group of a rule that applies to every group
+    static final int ANY_GROUP = -1;
+
+    static final RestrictionTable EMPTY = new RestrictionTable(new Rule[MenuAction.values().length][]);
+
+    private static final MenuAction[] ITEM_ACTIONS = {
+        MenuAction.CC_OP, MenuAction.CC_OP_LOW_PRIORITY, MenuAction.WIDGET_TARGET,
+        MenuAction.ITEM_FIRST_OPTION, MenuAction.ITEM_SECOND_OPTION, MenuAction.ITEM_THIRD_OPTION,
+        MenuAction.ITEM_FOURTH_OPTION, MenuAction.ITEM_FIFTH_OPTION, MenuAction.ITEM_USE
+    };
+
+    private static final MenuAction[] WIDGET_OPS = {
+        MenuAction.CC_OP, MenuAction.CC_OP_LOW_PRIORITY
+    };
+
+    private static final MenuAction[] GROUND_ITEM_ACTIONS = {
+        MenuAction.GROUND_ITEM_FIRST_OPTION, MenuAction.GROUND_ITEM_SECOND_OPTION, MenuAction.GROUND_ITEM_THIRD_OPTION,
+        MenuAction.GROUND_ITEM_FOURTH_OPTION, MenuAction.GROUND_ITEM_FIFTH_OPTION
+    };
+
+    private static final class Rule
+    {
+        private final int groupId;
+        private final Policy policy;
+
+        private Rule(int groupId, Policy policy)
+        {
+            this.groupId = groupId;
+            this.policy = policy;
+        }
+    }
+
+    // Rules by MenuAction ordinal, null if the action is never restricted
+    private final Rule[][] rules;
+
+    private RestrictionTable(Rule[][] rules)
+    {
+        this.rules = rules;
+    }
+
+    static RestrictionTable build(ClogmanConfig config)
+    {
+        List<List<Rule>> table = new ArrayList<>();
+        for (int i = 0; i < MenuAction.values().length; i++)
+        {
+            table.add(new ArrayList<>());
+        }
+
+        if (config.restrictItemUsage())
+        {
+            add(table, ITEM_ACTIONS, ANY_GROUP, Policy.USE);
+        }
+        if (config.restrictGrandExchange())
+        {
+            add(table, WIDGET_OPS, InterfaceID.GRAND_EXCHANGE, Policy.GE_OFFER);
+        }
+        if (config.restrictBankWithdraw())
+        {
+            // Any withdraw op (bank, seed vault, ...) rather than just the bank group
+            add(table, WIDGET_OPS, ANY_GROUP, Policy.WITHDRAW);
+        }
+        if (config.restrictShopBuy())
+        {
+            add(table, WIDGET_OPS, InterfaceID.SHOP, Policy.BUY);
+        }
+        if (config.restrictGroundTake())
+        {
+            add(table, GROUND_ITEM_ACTIONS, ANY_GROUP, Policy.TAKE);
+        }
+        if (config.restrictDepositBox())
+        {
+            add(table, WIDGET_OPS, InterfaceID.DEPOSIT_BOX, Policy.DEPOSIT);
+        }
+        if (config.restrictTradeOffer())
+        {
+            add(table, WIDGET_OPS, InterfaceID.TRADE_INVENTORY, Policy.OFFER);
+        }
+
+        Rule[][] rules = new Rule[table.size()][];
+        for (int i = 0; i < rules.length; i++)
+        {
+            if (!table.get(i).isEmpty())
+            {
+                rules[i] = table.get(i).toArray(new Rule[0]);
+            }
+        }
+        return new RestrictionTable(rules);
+    }
+
+    private static void add(List<List<Rule>> table, MenuAction[] actions, int groupId, Policy policy)
+    {
+        for (MenuAction action : actions)
+        {
+            table.get(action.ordinal()).add(new Rule(groupId, policy));
+        }
+    }
+
+    /**
+     * Whether any rules at all are registered for an action
+     */
+    boolean covers(MenuAction action)
+    {
+        return action != null && rules[action.ordinal()] != null;
+    }
+
+    /**
+     * Restriction for a menu action on the given widget group with the given kind of option,
+     * or null if it isn't restricted
+     */
+    Policy policyFor(MenuAction action, int groupId, MenuOptions.Kind kind)
+    {
+        Rule[] candidates = action != null ? rules[action.ordinal()] : null;
+        if (candidates == null)
+        {
+            return null;
+        }
+
+        for (Rule rule : candidates)
+        {
+            if (rule.policy.kind == kind && (rule.groupId == ANY_GROUP || rule.groupId == groupId))
+            {
+                return rule.policy;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether a menu action targets a ground item, whose ID is the entry identifier
+     */
+    static boolean isGroundItem(MenuAction action)
+    {
+        for (MenuAction groundAction : GROUND_ITEM_ACTIONS)
+        {
+            if (action == groundAction)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,266 @@
+package com.clogman;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Item;
+import net.runelite.api.ItemContainer;
+
+import java.util.Arrays;
+
+/**
+ * Detects new collection log unlocks without relying on the chat notification.
+ *
+ * The collection log count varp going up says that something was added, and clog items
+ * that just arrived in the inventory say what. The two are matched up at the end of each
+ * game tick: if the count went up by exactly as many not-yet-unlocked clog items as
+ * arrived in the last couple of ticks, those items become tentative unlocks. An item
+ * bought or collected in the same ticks as an unrelated log entry would match too, so a
+ * tentative unlock only becomes permanent once the chat notification or a collection log
+ * scan confirms it, and the match decides which of several same-named items that was.
+ *
+ * Only new items count as arrivals: items taken off, withdrawn from the bank or another
+ * store, bought, collected or received in a trade are ignored, as are items the player
+ * locked manually. Client thread only.
+ */
+@Slf4j
+final class UnlockDetector
+{
+    // Total number of collection log slots the player has filled
+    static final int COLLECTION_LOG_COUNT_VARP = 2943;
+
+    // How many ticks an arrival or count increase waits for the other half
+    private static final int MATCH_WINDOW_TICKS = 2;
+
+    private final ClogmanPlugin plugin;
+
+    // Last known count, -1 until the first value after login (which is only a baseline)
+    private int lastCount = -1;
+    private int pendingIncrease;
+    private int pendingIncreaseTick;
+
+    // Inventory item IDs as of the last change, to work out which slots gained an item
+    private int[] lastInventory;
+
+    // Equipment item IDs as of the last change, and before it, so unequipped items aren't new
+    private int[] lastEquipment = new int[0];
+    private int[] previousEquipment = new int[0];
+    private int equipmentTick;
+
+    // Last tick the bank, a trade or another item store was open
+    private int transferTick = Integer.MIN_VALUE / 2;
+
+    // Clog item IDs (primary) that arrived recently and weren't unlocked, with their tick
+    private int[] candidates = new int[8];
+    private int[] candidateTicks = new int[8];
+    private int candidateCount;
+
+    // Clog item IDs (primary) matched to a count increase, waiting for a confirmation
+    private int[] tentative = new int[8];
+    private int tentativeCount;
+
+    UnlockDetector(ClogmanPlugin plugin)
+    {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Forgets all state, e.g. on logout. The next count seen is a new baseline.
+     */
+    void reset()
+    {
+        lastCount = -1;
+        pendingIncrease = 0;
+        lastInventory = null;
+        lastEquipment = new int[0];
+        previousEquipment = new int[0];
+        transferTick = Integer.MIN_VALUE / 2;
+        candidateCount = 0;
+        tentativeCount = 0;
+    }
+
+    /**
+     * Notes that an interface items can be received through (bank, trade, shop, ...) is
+     * open, inventory gains around this tick aren't drops
+     */
+    void onTransferOpen(int tick)
+    {
+        transferTick = tick;
+    }
+
+    void onEquipmentChanged(ItemContainer equipment, int tick)
+    {
+        previousEquipment = lastEquipment;
+        lastEquipment = itemIds(equipment);
+        equipmentTick = tick;
+    }
+
+    void onCountChanged(int count, int tick)
+    {
+        if (lastCount >= 0 && count > lastCount)
+        {
+            pendingIncrease += count - lastCount;
+            pendingIncreaseTick = tick;
+        }
+        lastCount = count;
+    }
+
+    void onInventoryChanged(ItemContainer inventory, int tick)
+    {
+        int[] previous = lastInventory;
+        lastInventory = itemIds(inventory);
+
+        // First sighting after login is the baseline, and withdrawn or traded items aren't loot
+        if (previous == null || tick - transferTick <= 1)
+        {
+            return;
+        }
+
+        ClogDataset dataset = plugin.getDataset();
+        UnlockSnapshot snapshot = plugin.getSnapshot();
+        for (int slot = 0; slot < lastInventory.length; slot++)
+        {
+            int itemId = lastInventory[slot];
+            // Moved or restacked items were already there, unequipped ones were worn
+            if (itemId <= 0 || contains(previous, itemId) || wasEquipped(itemId, tick))
+            {
+                continue;
+            }
+
+            int ordinal = dataset.getOwningOrdinal(itemId);
+            if (ordinal < 0)
+            {
+                continue;
+            }
+
+            // Don't undo a manual lock
+            int clogId = dataset.getClogId(ordinal);
+            if (!snapshot.getUnlocked().contains(clogId) && !snapshot.getManuallyRemoved().contains(clogId)
+                && !contains(candidates, candidateCount, clogId))
+            {
+                addCandidate(clogId, tick);
+            }
+        }
+    }
+
+    /**
+     * Matches count increases against arrived items, matches become tentative unlocks
+     */
+    void onGameTick(int tick)
+    {
+        // Drop arrivals too old to be matched
+        int kept = 0;
+        for (int i = 0; i < candidateCount; i++)
+        {
+            if (tick - candidateTicks[i] <= MATCH_WINDOW_TICKS)
+            {
+                candidates[kept] = candidates[i];
+                candidateTicks[kept] = candidateTicks[i];
+                kept++;
+            }
+        }
+        candidateCount = kept;
+
+        if (pendingIncrease == 0)
+        {
+            return;
+        }
+
+        if (candidateCount == pendingIncrease)
+        {
+            for (int i = 0; i < candidateCount; i++)
+            {
+                addTentative(candidates[i]);
+            }
+            log.debug("Tentative collection log unlocks: {}", Arrays.toString(Arrays.copyOf(candidates, candidateCount)));
+            pendingIncrease = 0;
+            candidateCount = 0;
+            return;
+        }
+
+        // Wait a little for the items to show up, then leave it to the fallbacks
+        if (tick - pendingIncreaseTick > MATCH_WINDOW_TICKS)
+        {
+            log.debug("Unmatched collection log count increase of {} with {} candidate items", pendingIncrease, candidateCount);
+            pendingIncrease = 0;
+        }
+    }
+
+    boolean isTentative(int clogId)
+    {
+        return contains(tentative, tentativeCount, clogId);
+    }
+
+    /**
+     * Forgets a tentative unlock once the chat notification or the collection log has
+     * settled whether the item was added
+     */
+    void resolve(int clogId)
+    {
+        for (int i = 0; i < tentativeCount; i++)
+        {
+            if (tentative[i] == clogId)
+            {
+                tentative[i] = tentative[--tentativeCount];
+                return;
+            }
+        }
+    }
+
+    private void addCandidate(int clogId, int tick)
+    {
+        if (candidateCount == candidates.length)
+        {
+            candidates = Arrays.copyOf(candidates, candidateCount * 2);
+            candidateTicks = Arrays.copyOf(candidateTicks, candidateCount * 2);
+        }
+        candidates[candidateCount] = clogId;
+        candidateTicks[candidateCount] = tick;
+        candidateCount++;
+    }
+
+    private void addTentative(int clogId)
+    {
+        if (contains(tentative, tentativeCount, clogId))
+        {
+            return;
+        }
+        if (tentativeCount == tentative.length)
+        {
+            tentative = Arrays.copyOf(tentative, tentativeCount * 2);
+        }
+        tentative[tentativeCount++] = clogId;
+    }
+
+    private boolean wasEquipped(int itemId, int tick)
+    {
+        return contains(lastEquipment, itemId)
+            || (tick - equipmentTick <= 1 && contains(previousEquipment, itemId));
+    }
+
+    private static int[] itemIds(ItemContainer container)
+    {
+        Item[] items = container.getItems();
+        int[] ids = new int[items.length];
+        for (int slot = 0; slot < items.length; slot++)
+        {
+            ids[slot] = items[slot].getId();
+        }
+        return ids;
+    }
+
+    private static boolean contains(int[] ids, int itemId)
+    {
+        return contains(ids, ids.length, itemId);
+    }
+
+    private static boolean contains(int[] ids, int count, int itemId)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            if (ids[i] == itemId)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,511 @@
+package com.clogman;
+
+import java.util.Arrays;
+
+/**
+ * Works out which clog items are effectively unlocked and which derived items are
+ * available, using bitsets over dense clog ordinals.
+ *
+ * craftable_from chains are flattened at build time, so every clog requirement and derived
+ * dependency set lists only clog items that count when unlocked directly (the "base" set:
+ * direct unlocks, plus clue items while clue restrictions are disabled). Each set is
+ * compiled into a bitmask over ordinals, keeping only its non-zero words, and "is this set
+ * satisfied?" is (mask &amp; ~base) == 0 for each of those words. Each item depends only on
+ * the base set, so no recursion, propagation or evaluation order is needed: a full recompute
+ * is one pass over the ordinals. The recipe graph's strongly connected components (crafting
+ * cycles) only matter to that build-time flattening.
+ *
+ * Single unlocks and locks are applied incrementally: a reverse index from each clog item to
+ * the clog items and derived items whose sets mention it means only those are re-checked.
+ * Changes are applied and collected with {@link #collectChanges()}.
+ *
+ * Not thread safe, only used from the client thread.
+ */
+final class UnlockEngine
+{
+    private static final int[] NONE = new int[0];
+
+    private final int clogCount;
+    private final int derivedCount;
+
+    // Mask m is the words maskWords[maskStart[m] .. maskStart[m + 1]) at word positions maskWordIndex[..]
+    private final int[] maskStart;
+    private final int[] maskWordIndex;
+    private final long[] maskWords;
+
+    // Requirement sets of clog ordinal o are masks [requirementStart[o], requirementStart[o + 1])
+    private final int[] requirementStart;
+    // Dependency sets of derived item d are masks [depSetStart[d], depSetStart[d + 1])
+    private final int[] depSetStart;
+
+    // Clog items whose requirements mention clog ordinal o are users[usersStart[o] .. usersStart[o + 1])
+    private final int[] usersStart;
+    private final int[] users;
+
+    // Derived items depending on clog ordinal o are dependents[dependentsStart[o] .. dependentsStart[o + 1])
+    private final int[] dependentsStart;
+    private final int[] dependents;
+
+    // Treasure Trail clog items
+    private final long[] clueItems;
+
+    // Current state
+    private final long[] direct;
+    private boolean clueItemsUnlocked;
+    private final long[] base;
+    private final long[] effective;
+    private final long[] derivedAvailable;
+
+    // Clog ordinals whose base state changed since the last collectChanges()
+    private final int[] pending;
+    private int pendingCount;
+    private final long[] pendingBits;
+    private final long[] clogChecked;
+    private final long[] derivedChecked;
+
+    UnlockEngine(ClogDataset dataset)
+    {
+        clogCount = dataset.getClogCount();
+        derivedCount = dataset.getDerivedCount();
+
+        int[][] clogInputs = new int[clogCount][];
+        int[][] derivedInputs = new int[derivedCount][];
+        int maskCount = 0;
+        int wordCount = 0;
+
+        clueItems = Bits.create(clogCount);
+        for (int o = 0; o < clogCount; o++)
+        {
+            int[][] requirements = dataset.getClogRequirements(o);
+            maskCount += requirements.length;
+            wordCount += countWords(requirements);
+            clogInputs[o] = distinct(requirements);
+            if (dataset.isClueItem(o))
+            {
+                Bits.set(clueItems, o);
+            }
+        }
+        for (int d = 0; d < derivedCount; d++)
+        {
+            int[][] depSets = dataset.getDerivedDependencies(d);
+            maskCount += depSets.length;
+            wordCount += countWords(depSets);
+            derivedInputs[d] = distinct(depSets);
+        }
+
+        usersStart = new int[clogCount + 1];
+        users = invert(clogInputs, usersStart);
+        dependentsStart = new int[clogCount + 1];
+        dependents = invert(derivedInputs, dependentsStart);
+
+        maskStart = new int[maskCount + 1];
+        maskWordIndex = new int[wordCount];
+        maskWords = new long[wordCount];
+        requirementStart = new int[clogCount + 1];
+        depSetStart = new int[derivedCount + 1];
+
+        int mask = 0;
+        for (int o = 0; o < clogCount; o++)
+        {
+            requirementStart[o] = mask;
+            for (int[] requirement : dataset.getClogRequirements(o))
+            {
+                compileMask(mask++, requirement);
+            }
+        }
+        requirementStart[clogCount] = mask;
+
+        for (int d = 0; d < derivedCount; d++)
+        {
+            depSetStart[d] = mask;
+            for (int[] depSet : dataset.getDerivedDependencies(d))
+            {
+                compileMask(mask++, depSet);
+            }
+        }
+        depSetStart[derivedCount] = mask;
+
+        direct = Bits.create(clogCount);
+        base = Bits.create(clogCount);
+        effective = Bits.create(clogCount);
+        derivedAvailable = Bits.create(derivedCount);
+        pending = new int[clogCount];
+        pendingBits = Bits.create(clogCount);
+        clogChecked = Bits.create(clogCount);
+        derivedChecked = Bits.create(derivedCount);
+    }
+
+    /**
+     * Recomputes everything from the set of directly unlocked clog ordinals.
+     * Discards any changes not yet collected.
+     *
+     * @param directlyUnlocked bitset of directly unlocked clog ordinals
+     * @param clueItemsUnlocked whether clue items count as unlocked (clue restrictions disabled)
+     */
+    void recompute(long[] directlyUnlocked, boolean clueItemsUnlocked)
+    {
+        this.clueItemsUnlocked = clueItemsUnlocked;
+        for (int w = 0; w < base.length; w++)
+        {
+            direct[w] = directlyUnlocked[w];
+            base[w] = direct[w] | (clueItemsUnlocked ? clueItems[w] : 0);
+        }
+
+        // Unlocked directly, or craftable from direct unlocks (e.g. Onyx from Uncut onyx)
+        for (int o = 0; o < clogCount; o++)
+        {
+            if (Bits.get(base, o) || anySatisfied(requirementStart[o], requirementStart[o + 1]))
+            {
+                Bits.set(effective, o);
+            }
+            else
+            {
+                Bits.clear(effective, o);
+            }
+        }
+
+        // Derived items - available if any dependency set is satisfied (OR of AND)
+        for (int d = 0; d < derivedCount; d++)
+        {
+            if (anySatisfied(depSetStart[d], depSetStart[d + 1]))
+            {
+                Bits.set(derivedAvailable, d);
+            }
+            else
+            {
+                Bits.clear(derivedAvailable, d);
+            }
+        }
+
+        for (int i = 0; i < pendingCount; i++)
+        {
+            Bits.clear(pendingBits, pending[i]);
+        }
+        pendingCount = 0;
+    }
+
+    /**
+     * Marks a clog item as directly unlocked. Takes effect on the next {@link #collectChanges()}.
+     */
+    void unlock(int ordinal)
+    {
+        if (!Bits.get(direct, ordinal))
+        {
+            Bits.set(direct, ordinal);
+            updateBase(ordinal);
+        }
+    }
+
+    /**
+     * Removes a direct unlock. Takes effect on the next {@link #collectChanges()}.
+     */
+    void lock(int ordinal)
+    {
+        if (Bits.get(direct, ordinal))
+        {
+            Bits.clear(direct, ordinal);
+            updateBase(ordinal);
+        }
+    }
+
+    /**
+     * Re-checks the clog items and derived items depending on clog items unlocked or locked
+     * since the last call and returns the exact changes
+     */
+    Delta collectChanges()
+    {
+        IntBuffer unlocked = new IntBuffer();
+        IntBuffer locked = new IntBuffer();
+        IntBuffer derivedUnlocked = new IntBuffer();
+        IntBuffer derivedLocked = new IntBuffer();
+
+        for (int i = 0; i < pendingCount; i++)
+        {
+            int o = pending[i];
+            Bits.clear(pendingBits, o);
+
+            checkClog(o, unlocked, locked);
+            for (int j = usersStart[o]; j < usersStart[o + 1]; j++)
+            {
+                checkClog(users[j], unlocked, locked);
+            }
+            for (int j = dependentsStart[o]; j < dependentsStart[o + 1]; j++)
+            {
+                checkDerived(dependents[j], derivedUnlocked, derivedLocked);
+            }
+        }
+        pendingCount = 0;
+
+        Arrays.fill(clogChecked, 0);
+        Arrays.fill(derivedChecked, 0);
+
+        return new Delta(unlocked.toArray(), locked.toArray(), derivedUnlocked.toArray(), derivedLocked.toArray());
+    }
+
+    /**
+     * Resets to nothing unlocked
+     */
+    void clear()
+    {
+        recompute(Bits.create(clogCount), false);
+    }
+
+    boolean isEffectivelyUnlocked(int ordinal)
+    {
+        return Bits.get(effective, ordinal);
+    }
+
+    /**
+     * Bitset of effectively unlocked clog ordinals. Owned by the engine, must not be modified.
+     */
+    long[] getEffective()
+    {
+        return effective;
+    }
+
+    /**
+     * Bitset of available derived items. Owned by the engine, must not be modified.
+     */
+    long[] getDerivedAvailable()
+    {
+        return derivedAvailable;
+    }
+
+    int getEffectiveCount()
+    {
+        return Bits.count(effective);
+    }
+
+    int getDerivedAvailableCount()
+    {
+        return Bits.count(derivedAvailable);
+    }
+
+    private void updateBase(int ordinal)
+    {
+        boolean isBase = Bits.get(direct, ordinal) || (clueItemsUnlocked && Bits.get(clueItems, ordinal));
+        if (isBase == Bits.get(base, ordinal))
+        {
+            return;
+        }
+
+        if (isBase)
+        {
+            Bits.set(base, ordinal);
+        }
+        else
+        {
+            Bits.clear(base, ordinal);
+        }
+
+        if (!Bits.get(pendingBits, ordinal))
+        {
+            Bits.set(pendingBits, ordinal);
+            pending[pendingCount++] = ordinal;
+        }
+    }
+
+    private void checkClog(int o, IntBuffer unlocked, IntBuffer locked)
+    {
+        if (Bits.get(clogChecked, o))
+        {
+            return;
+        }
+        Bits.set(clogChecked, o);
+
+        boolean now = Bits.get(base, o) || anySatisfied(requirementStart[o], requirementStart[o + 1]);
+        if (now == Bits.get(effective, o))
+        {
+            return;
+        }
+
+        if (now)
+        {
+            Bits.set(effective, o);
+            unlocked.add(o);
+        }
+        else
+        {
+            Bits.clear(effective, o);
+            locked.add(o);
+        }
+    }
+
+    private void checkDerived(int d, IntBuffer unlocked, IntBuffer locked)
+    {
+        if (Bits.get(derivedChecked, d))
+        {
+            return;
+        }
+        Bits.set(derivedChecked, d);
+
+        boolean now = anySatisfied(depSetStart[d], depSetStart[d + 1]);
+        if (now == Bits.get(derivedAvailable, d))
+        {
+            return;
+        }
+
+        if (now)
+        {
+            Bits.set(derivedAvailable, d);
+            unlocked.add(d);
+        }
+        else
+        {
+            Bits.clear(derivedAvailable, d);
+            locked.add(d);
+        }
+    }
+
+    private boolean anySatisfied(int fromMask, int toMask)
+    {
+        for (int m = fromMask; m < toMask; m++)
+        {
+            if (isSatisfied(m))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isSatisfied(int mask)
+    {
+        for (int i = maskStart[mask]; i < maskStart[mask + 1]; i++)
+        {
+            if ((maskWords[i] & ~base[maskWordIndex[i]]) != 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void compileMask(int mask, int[] ordinals)
+    {
+        int[] sorted = ordinals.clone();
+        Arrays.sort(sorted);
+
+        int i = maskStart[mask];
+        int lastWord = -1;
+        for (int ordinal : sorted)
+        {
+            int word = ordinal >>> 6;
+            if (word != lastWord)
+            {
+                maskWordIndex[i++] = word;
+                lastWord = word;
+            }
+            maskWords[i - 1] |= 1L << ordinal;
+        }
+        maskStart[mask + 1] = i;
+    }
+
+    private static int countWords(int[][] sets)
+    {
+        int words = 0;
+        for (int[] set : sets)
+        {
+            int[] sorted = set.clone();
+            Arrays.sort(sorted);
+            int lastWord = -1;
+            for (int ordinal : sorted)
+            {
+                if (ordinal >>> 6 != lastWord)
+                {
+                    lastWord = ordinal >>> 6;
+                    words++;
+                }
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Every ordinal mentioned by any of the sets, once
+     */
+    private static int[] distinct(int[][] sets)
+    {
+        return Arrays.stream(sets).flatMapToInt(Arrays::stream).distinct().toArray();
+    }
+
+    /**
+     * Inverts source -> clog ordinals into clog ordinal -> sources.
+     * Fills start (length clogCount + 1) and returns the packed sources.
+     */
+    private static int[] invert(int[][] ordinalsBySource, int[] start)
+    {
+        int keys = start.length - 1;
+        for (int[] ordinals : ordinalsBySource)
+        {
+            for (int ordinal : ordinals)
+            {
+                start[ordinal + 1]++;
+            }
+        }
+        for (int o = 0; o < keys; o++)
+        {
+            start[o + 1] += start[o];
+        }
+
+        int[] sources = new int[start[keys]];
+        int[] fill = Arrays.copyOf(start, keys);
+        for (int source = 0; source < ordinalsBySource.length; source++)
+        {
+            for (int ordinal : ordinalsBySource[source])
+            {
+                sources[fill[ordinal]++] = source;
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Small growable int array for collecting changes
+     */
+    private static final class IntBuffer
+    {
+        private int[] values = NONE;
+        private int size;
+
+        void add(int value)
+        {
+            if (size == values.length)
+            {
+                values = Arrays.copyOf(values, Math.max(8, size * 2));
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray()
+        {
+            return size == 0 ? NONE : Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Exact changes from a batch of unlocks/locks: clog ordinals that became effectively
+     * unlocked or locked, and derived item indexes that became available or unavailable
+     */
+    static final class Delta
+    {
+        final int[] unlocked;
+        final int[] locked;
+        final int[] derivedUnlocked;
+        final int[] derivedLocked;
+
+        Delta(int[] unlocked, int[] locked, int[] derivedUnlocked, int[] derivedLocked)
+        {
+            this.unlocked = unlocked;
+            this.locked = locked;
+            this.derivedUnlocked = derivedUnlocked;
+            this.derivedLocked = derivedLocked;
+        }
+
+        boolean isEmpty()
+        {
+            return unlocked.length == 0 && locked.length == 0
+                && derivedUnlocked.length == 0 && derivedLocked.length == 0;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.clogman;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable view of a player's unlock state, published by the plugin after every change.
+ *
+ * Built on the client thread and swapped in through a single volatile reference, so the
+ * overlay, menu hooks and panel (EDT) can read it without locks or defensive copies.
+ * The bitsets are private copies indexed by the ordinals of the dataset they were built from.
+ * Item lookups go through a flat table indexed by item ID (see {@link ClogDataset#createItemTable}),
+ * which is only copied and patched when availability actually changes.
+ */
+public final class UnlockSnapshot
+{
+    static final UnlockSnapshot EMPTY = new UnlockSnapshot(
+        ClogDataset.EMPTY, false, Set.of(), Set.of(), Set.of(), new long[0], new long[0], new int[0], 0);
+
+    // Source of availability epochs, shared by every snapshot so they never repeat
+    private static final AtomicLong EPOCHS = new AtomicLong();
+
+    private final ClogDataset dataset;
+    private final boolean ready;
+    private final Set<Integer> unlocked;
+    private final Set<Integer> manuallyAdded;
+    private final Set<Integer> manuallyRemoved;
+    private final long[] effective;
+    private final long[] derivedAvailable;
+    private final int[] items;
+    private final long availabilityEpoch;
+
+    private UnlockSnapshot(ClogDataset dataset, boolean ready,
+        Set<Integer> unlocked, Set<Integer> manuallyAdded, Set<Integer> manuallyRemoved,
+        long[] effective, long[] derivedAvailable, int[] items, long availabilityEpoch)
+    {
+        this.dataset = dataset;
+        this.ready = ready;
+        this.unlocked = unlocked;
+        this.manuallyAdded = manuallyAdded;
+        this.manuallyRemoved = manuallyRemoved;
+        this.effective = effective;
+        this.derivedAvailable = derivedAvailable;
+        this.items = items;
+        this.availabilityEpoch = availabilityEpoch;
+    }
+
+    /**
+     * Captures the current state. The sets and engine bitsets are copied.
+     * If delta holds every change since previous was taken, the item table is patched from
+     * a copy of the previous one (or shared if nothing changed), otherwise it is rebuilt.
+     */
+    static UnlockSnapshot of(ClogDataset dataset, UnlockEngine engine,
+        Set<Integer> unlocked, Set<Integer> manuallyAdded, Set<Integer> manuallyRemoved,
+        UnlockSnapshot previous, UnlockEngine.Delta delta)
+    {
+        long[] effective = engine.getEffective().clone();
+        long[] derivedAvailable = engine.getDerivedAvailable().clone();
+
+        int[] items;
+        if (delta == null || previous.dataset != dataset || !previous.ready)
+        {
+            items = dataset.createItemTable(effective, derivedAvailable);
+        }
+        else if (delta.isEmpty())
+        {
+            items = previous.items;
+        }
+        else
+        {
+            items = previous.items.clone();
+            dataset.updateItemTable(items, delta.unlocked, delta.derivedUnlocked, effective, derivedAvailable);
+            dataset.updateItemTable(items, delta.locked, delta.derivedLocked, effective, derivedAvailable);
+        }
+
+        return new UnlockSnapshot(dataset, true,
+            Set.copyOf(unlocked), Set.copyOf(manuallyAdded), Set.copyOf(manuallyRemoved),
+            effective, derivedAvailable, items,
+            items == previous.items ? previous.availabilityEpoch : EPOCHS.incrementAndGet());
+    }
+
+    public ClogDataset getDataset()
+    {
+        return dataset;
+    }
+
+    /**
+     * Whether the restriction data had been loaded when this snapshot was taken
+     */
+    public boolean isReady()
+    {
+        return ready;
+    }
+
+    /**
+     * Changes whenever item availability may have changed since an earlier snapshot,
+     * so anything derived from {@link #isItemAvailable} can be cached against it
+     */
+    public long getAvailabilityEpoch()
+    {
+        return availabilityEpoch;
+    }
+
+    /**
+     * Directly unlocked collection log item IDs (unmodifiable)
+     */
+    public Set<Integer> getUnlocked()
+    {
+        return unlocked;
+    }
+
+    /**
+     * Unlocks added via the panel rather than found in the collection log (unmodifiable)
+     */
+    public Set<Integer> getManuallyAdded()
+    {
+        return manuallyAdded;
+    }
+
+    /**
+     * Items locked via the panel despite being in the collection log (unmodifiable)
+     */
+    public Set<Integer> getManuallyRemoved()
+    {
+        return manuallyRemoved;
+    }
+
+    /**
+     * Whether a clog item is directly unlocked or craftable from unlocked clog items
+     */
+    public boolean isEffectivelyUnlocked(int clogItemId)
+    {
+        int ordinal = dataset.getOrdinal(clogItemId);
+        return ordinal >= 0 && Bits.get(effective, ordinal);
+    }
+
+    /**
+     * Whether an item is available: untracked, or unlocked through a clog item or derived item
+     */
+    public boolean isItemAvailable(int itemId)
+    {
+        return itemId < 0 || itemId >= items.length || (items[itemId] & ClogDataset.ITEM_LOCKED) == 0;
+    }
+}
@@ -0,0 +1,160 @@
+package com.clogman;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Compact config encoding of a player's unlock state: the unlocked, manually added and
+ * manually removed item IDs in a single base64 value.
+ *
+ * Layout: a format version byte, then for each set its size and its IDs in ascending order,
+ * the first as is and the rest as the gap from the previous one, all as unsigned LEB128
+ * varints. Item IDs rather than dataset ordinals are stored so the value stays valid when
+ * the collection log data changes. Most gaps fit in one byte, against five to six characters
+ * per ID as JSON.
+ */
+final class UnlockStateCodec
+{
+    static final int VERSION = 1;
+
+    // Unlocked, manually added, manually removed
+    static final int SET_COUNT = 3;
+
+    private UnlockStateCodec()
+    {
+    }
+
+    static String encode(Set<Integer> unlocked, Set<Integer> manuallyAdded, Set<Integer> manuallyRemoved)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + unlocked.size() * 2);
+        out.write(VERSION);
+        writeSet(out, unlocked);
+        writeSet(out, manuallyAdded);
+        writeSet(out, manuallyRemoved);
+        return Base64.getEncoder().withoutPadding().encodeToString(out.toByteArray());
+    }
+
+    /**
+     * Decodes a value written by {@link #encode}: the unlocked, manually added and manually
+     * removed IDs, each sorted ascending
+     *
+     * @throws IllegalArgumentException if the value is malformed or from an unknown version
+     */
+    static int[][] decode(String value)
+    {
+        byte[] data = Base64.getDecoder().decode(value);
+        if (data.length == 0 || data[0] != VERSION)
+        {
+            throw new IllegalArgumentException("Unsupported unlock state version " + (data.length > 0 ? data[0] : -1));
+        }
+
+        int[] position = {1};
+        int[][] sets = new int[SET_COUNT][];
+        for (int s = 0; s < SET_COUNT; s++)
+        {
+            int size = readVarint(data, position);
+            // Every ID takes at least a byte
+            if (size > data.length - position[0])
+            {
+                throw new IllegalArgumentException("Truncated unlock state");
+            }
+
+            int[] ids = new int[size];
+            int previous = 0;
+            for (int i = 0; i < size; i++)
+            {
+                int gap = readVarint(data, position);
+                if (i > 0 && gap == 0)
+                {
+                    throw new IllegalArgumentException("Duplicate item ID in unlock state");
+                }
+                previous += gap;
+                if (previous < 0)
+                {
+                    throw new IllegalArgumentException("Item ID out of range in unlock state");
+                }
+                ids[i] = previous;
+            }
+            sets[s] = ids;
+        }
+
+        if (position[0] != data.length)
+        {
+            throw new IllegalArgumentException("Trailing data in unlock state");
+        }
+        return sets;
+    }
+
+    /**
+     * Reads one of the legacy JSON item ID arrays (the unlockedItems, manuallyAdded and
+     * manuallyRemoved keys) being migrated to this format. A null or empty value is an empty set.
+     *
+     * @throws JsonParseException if the value isn't a JSON array of item IDs
+     */
+    static int[] decodeLegacy(Gson gson, String json)
+    {
+        if (json == null || json.isEmpty())
+        {
+            return new int[0];
+        }
+        int[] ids = gson.fromJson(json, int[].class);
+        return ids != null ? ids : new int[0];
+    }
+
+    private static void writeSet(ByteArrayOutputStream out, Set<Integer> set)
+    {
+        int[] ids = new int[set.size()];
+        int n = 0;
+        for (int id : set)
+        {
+            if (id < 0)
+            {
+                throw new IllegalArgumentException("Negative item ID " + id);
+            }
+            ids[n++] = id;
+        }
+        Arrays.sort(ids);
+
+        writeVarint(out, ids.length);
+        int previous = 0;
+        for (int id : ids)
+        {
+            writeVarint(out, id - previous);
+            previous = id;
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value)
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] data, int[] position)
+    {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7)
+        {
+            if (position[0] >= data.length)
+            {
+                throw new IllegalArgumentException("Truncated unlock state");
+            }
+            int b = data[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+            {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in unlock state");
+    }
+}
@@ -0,0 +1,111 @@
+package com.clogman;
+
+import net.runelite.api.Client;
+import net.runelite.api.InventoryID;
+import net.runelite.api.widgets.ComponentID;
+import net.runelite.api.widgets.Widget;
+
+import java.util.Arrays;
+
+/**
+ * Dims locked items by setting the opacity of their inventory and bank widgets, so the
+ * client draws them dimmed itself and nothing runs per frame. Has to be re-applied
+ * whenever the client rebuilds the widgets or availability changes. Client thread only.
+ */
+final class WidgetDimmer
+{
+    private static final int INVENTORY_CONTAINER_ID = InventoryID.INVENTORY.getId();
+    private static final int BANK_CONTAINER_ID = InventoryID.BANK.getId();
+
+    private static final int INVENTORY = 0;
+    private static final int BANK_INVENTORY = 1;
+    private static final int BANK = 2;
+
+    private final Client client;
+    private final ClogmanPlugin plugin;
+    private final ClogmanConfig config;
+
+    // Opacity this set on each item widget by component and child index, 0 where it didn't dim
+    private final int[][] applied = new int[3][0];
+
+    WidgetDimmer(Client client, ClogmanPlugin plugin, ClogmanConfig config)
+    {
+        this.client = client;
+        this.plugin = plugin;
+        this.config = config;
+    }
+
+    /**
+     * Sets the opacity of every item widget from its lock state, or restores the widgets
+     * this dimmed if the dim mode isn't {@link ClogmanConfig.DimMode#WIDGET_OPACITY}
+     */
+    void apply()
+    {
+        boolean enabled = config.dimMode() == ClogmanConfig.DimMode.WIDGET_OPACITY;
+        apply(INVENTORY, ComponentID.INVENTORY_CONTAINER, INVENTORY_CONTAINER_ID, enabled, config.inventoryOpacity());
+        apply(BANK_INVENTORY, ComponentID.BANK_INVENTORY_ITEM_CONTAINER, INVENTORY_CONTAINER_ID, enabled, config.inventoryOpacity());
+        apply(BANK, ComponentID.BANK_ITEM_CONTAINER, BANK_CONTAINER_ID, enabled, config.bankOpacity());
+    }
+
+    /**
+     * Restores the opacity of every item widget this dimmed
+     */
+    void reset()
+    {
+        apply(INVENTORY, ComponentID.INVENTORY_CONTAINER, INVENTORY_CONTAINER_ID, false, 0);
+        apply(BANK_INVENTORY, ComponentID.BANK_INVENTORY_ITEM_CONTAINER, INVENTORY_CONTAINER_ID, false, 0);
+        apply(BANK, ComponentID.BANK_ITEM_CONTAINER, BANK_CONTAINER_ID, false, 0);
+    }
+
+    private void apply(int component, int componentId, int containerId, boolean enabled, int visibleOpacity)
+    {
+        Widget container = client.getWidget(componentId);
+        Widget[] items = container != null ? container.getDynamicChildren() : null;
+        if (items == null)
+        {
+            // The widgets are gone, whatever replaces them starts undimmed
+            Arrays.fill(applied[component], 0);
+            return;
+        }
+
+        int[] set = applied[component];
+        if (set.length < items.length)
+        {
+            set = applied[component] = Arrays.copyOf(set, items.length);
+        }
+        else
+        {
+            Arrays.fill(set, items.length, set.length, 0);
+        }
+
+        // Config opacity is 0 = invisible, widget opacity is 0 = fully visible
+        int dimmed = 255 - visibleOpacity;
+        for (int i = 0; i < items.length; i++)
+        {
+            Widget item = items[i];
+
+            // Bank placeholders (quantity 0) keep the client's own transparency. Item widgets
+            // are indexed by container slot.
+            int itemId = item.getItemId();
+            boolean locked = enabled && dimmed != 0 && itemId > 0 && item.getItemQuantity() > 0
+                && plugin.getLockedSlotCache().isLocked(containerId, item.getIndex(), itemId);
+            if (locked)
+            {
+                if (item.getOpacity() != dimmed)
+                {
+                    item.setOpacity(dimmed);
+                }
+                set[i] = dimmed;
+            }
+            else if (set[i] != 0)
+            {
+                // Only undo this widget's dimming if nothing else changed its opacity since
+                if (item.getOpacity() == set[i])
+                {
+                    item.setOpacity(0);
+                }
+                set[i] = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.clogman;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MenuOptionsTest
+{
+    @Test
+    public void classifiesOptions()
+    {
+        MenuOptions options = new MenuOptions();
+
+        assertEquals(MenuOptions.Kind.RESTRICTED, options.classify("Wield"));
+        assertEquals(MenuOptions.Kind.RESTRICTED, options.classify("<col=ff9040>Use"));
+        assertEquals(MenuOptions.Kind.WITHDRAW, options.classify("Withdraw-All"));
+        assertEquals(MenuOptions.Kind.BUY, options.classify("Buy 50"));
+        assertEquals(MenuOptions.Kind.TAKE, options.classify("Take"));
+        assertEquals(MenuOptions.Kind.DEPOSIT, options.classify("Deposit-1"));
+        assertEquals(MenuOptions.Kind.OFFER, options.classify("Offer-10"));
+        assertEquals(MenuOptions.Kind.CONFIRM, options.classify("Confirm"));
+        assertEquals(MenuOptions.Kind.OTHER, options.classify("Examine"));
+        assertEquals(MenuOptions.Kind.OTHER, options.classify(null));
+    }
+
+    @Test
+    public void cachesGrayOptions()
+    {
+        MenuOptions options = new MenuOptions();
+
+        String gray = options.gray("Wield");
+        assertTrue(gray.endsWith("Wield"));
+        assertSame(gray, options.gray(new String("Wield")));
+    }
+
+    @Test
+    public void grayingIsIdempotent()
+    {
+        MenuOptions options = new MenuOptions();
+
+        String gray = options.gray("Wield");
+        assertSame(gray, options.gray(gray));
+        assertEquals(MenuOptions.Kind.RESTRICTED, options.classify(gray));
+    }
+
+    @Test
+    public void returnsTheCachedEntry()
+    {
+        MenuOptions options = new MenuOptions();
+
+        MenuOptions.Entry entry = options.entry("Wield");
+        assertSame(entry, options.entry(new String("Wield")));
+        assertSame(entry, options.entry(options.gray("Wield")));
+    }
+
+    @Test
+    public void cacheIsBounded()
+    {
+        MenuOptions options = new MenuOptions();
+
+        for (int i = 0; i < MenuOptions.MAX_CACHED * 3; i++)
+        {
+            options.gray("Option " + i);
+            assertTrue(options.cachedCount() <= MenuOptions.MAX_CACHED);
+        }
+    }
+}
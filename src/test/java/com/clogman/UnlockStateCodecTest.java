@@ -0,0 +1,192 @@
+package com.clogman;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class UnlockStateCodecTest
+{
+    private static final Set<Integer> EMPTY = Collections.emptySet();
+
+    @Test
+    public void roundTripsAllThreeSets()
+    {
+        int[][] sets = UnlockStateCodec.decode(UnlockStateCodec.encode(
+            set(4151, 1249, 2577, 2579), set(2577), set(11802, 11804)));
+
+        assertArrayEquals(new int[] {1249, 2577, 2579, 4151}, sets[0]);
+        assertArrayEquals(new int[] {2577}, sets[1]);
+        assertArrayEquals(new int[] {11802, 11804}, sets[2]);
+    }
+
+    @Test
+    public void roundTripsEmptySets()
+    {
+        int[][] sets = UnlockStateCodec.decode(UnlockStateCodec.encode(EMPTY, EMPTY, EMPTY));
+
+        assertEquals(UnlockStateCodec.SET_COUNT, sets.length);
+        for (int[] ids : sets)
+        {
+            assertEquals(0, ids.length);
+        }
+    }
+
+    @Test
+    public void roundTripsLargeIds()
+    {
+        Set<Integer> unlocked = set(0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE - 1, Integer.MAX_VALUE);
+
+        int[][] sets = UnlockStateCodec.decode(UnlockStateCodec.encode(unlocked, set(Integer.MAX_VALUE), EMPTY));
+
+        assertArrayEquals(new int[] {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE - 1, Integer.MAX_VALUE}, sets[0]);
+        assertArrayEquals(new int[] {Integer.MAX_VALUE}, sets[1]);
+    }
+
+    @Test
+    public void roundTripsRandomSets()
+    {
+        Random random = new Random(0);
+        for (int run = 0; run < 500; run++)
+        {
+            Set<Integer> unlocked = randomSet(random, 1700);
+            Set<Integer> added = randomSet(random, 40);
+            Set<Integer> removed = randomSet(random, 40);
+
+            int[][] sets = UnlockStateCodec.decode(UnlockStateCodec.encode(unlocked, added, removed));
+
+            assertArrayEquals(sorted(unlocked), sets[0]);
+            assertArrayEquals(sorted(added), sets[1]);
+            assertArrayEquals(sorted(removed), sets[2]);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeIds()
+    {
+        UnlockStateCodec.encode(set(-1), EMPTY, EMPTY);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTruncatedInput()
+    {
+        byte[] data = bytes(UnlockStateCodec.encode(set(1249, 4151, 20000), EMPTY, EMPTY));
+        UnlockStateCodec.decode(base64(Arrays.copyOf(data, data.length - 2)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTruncatedVarint()
+    {
+        // Version, then a size whose continuation bit is set with nothing after it
+        UnlockStateCodec.decode(base64(new byte[] {UnlockStateCodec.VERSION, (byte) 0x80}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTrailingBytes()
+    {
+        byte[] data = bytes(UnlockStateCodec.encode(set(1249), EMPTY, EMPTY));
+        byte[] padded = Arrays.copyOf(data, data.length + 1);
+        UnlockStateCodec.decode(base64(padded));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBadBase64()
+    {
+        UnlockStateCodec.decode("not base64!");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyValue()
+    {
+        UnlockStateCodec.decode("");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownVersion()
+    {
+        byte[] data = bytes(UnlockStateCodec.encode(set(1249), EMPTY, EMPTY));
+        data[0] = UnlockStateCodec.VERSION + 1;
+        UnlockStateCodec.decode(base64(data));
+    }
+
+    @Test
+    public void migratesLegacyJsonKeys()
+    {
+        Gson gson = new Gson();
+        // As written by Gson from the old Set<Integer> fields
+        String unlockedJson = gson.toJson(set(4151, 1249, 2577));
+        String addedJson = "[2577]";
+        String removedJson = "[]";
+
+        int[] unlocked = UnlockStateCodec.decodeLegacy(gson, unlockedJson);
+        int[] added = UnlockStateCodec.decodeLegacy(gson, addedJson);
+        int[] removed = UnlockStateCodec.decodeLegacy(gson, removedJson);
+        int[][] sets = UnlockStateCodec.decode(UnlockStateCodec.encode(set(unlocked), set(added), set(removed)));
+
+        assertArrayEquals(new int[] {1249, 2577, 4151}, sets[0]);
+        assertArrayEquals(new int[] {2577}, sets[1]);
+        assertArrayEquals(new int[0], sets[2]);
+    }
+
+    @Test
+    public void treatsMissingLegacyKeysAsEmpty()
+    {
+        Gson gson = new Gson();
+
+        assertEquals(0, UnlockStateCodec.decodeLegacy(gson, null).length);
+        assertEquals(0, UnlockStateCodec.decodeLegacy(gson, "").length);
+        assertEquals(0, UnlockStateCodec.decodeLegacy(gson, "null").length);
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void rejectsMalformedLegacyJson()
+    {
+        UnlockStateCodec.decodeLegacy(new Gson(), "[1249, \"abc\"");
+    }
+
+    private static Set<Integer> set(int... ids)
+    {
+        Set<Integer> set = new HashSet<>();
+        for (int id : ids)
+        {
+            set.add(id);
+        }
+        return set;
+    }
+
+    private static Set<Integer> randomSet(Random random, int maxSize)
+    {
+        Set<Integer> set = new HashSet<>();
+        int size = random.nextInt(maxSize + 1);
+        for (int i = 0; i < size; i++)
+        {
+            // Mostly realistic item IDs, sometimes anywhere in range
+            set.add(random.nextInt(4) == 0 ? random.nextInt(Integer.MAX_VALUE) : random.nextInt(30000));
+        }
+        return set;
+    }
+
+    private static int[] sorted(Set<Integer> set)
+    {
+        return set.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    private static byte[] bytes(String value)
+    {
+        return Base64.getDecoder().decode(value);
+    }
+
+    private static String base64(byte[] data)
+    {
+        return Base64.getEncoder().withoutPadding().encodeToString(data);
+    }
+}